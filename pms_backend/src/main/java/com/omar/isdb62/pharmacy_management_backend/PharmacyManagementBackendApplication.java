@@ -2,8 +2,10 @@ package com.omar.isdb62.pharmacy_management_backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PharmacyManagementBackendApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,119 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import com.omar.isdb62.pharmacy_management_backend.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Runs BCrypt hashing and verification on a small executor of its own instead
+// of the request thread. BCrypt is deliberately slow CPU work: a burst of
+// logins (shift change, credential stuffing) could otherwise take every core
+// and stall checkout. At most threads hashes run at once and queue-capacity
+// wait; beyond that callers get a PasswordHashingBusyException right away.
+//
+// Metrics:
+//   auth.password.hash           time spent hashing, by operation (encode, matches)
+//   auth.password.hash.wait      time from submit until the result, queueing included
+//   auth.password.hash.queue     hashes waiting for a thread
+//   auth.password.hash.rejected  hashes refused because the queue was full
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.waitTimer = Timer.builder("auth.password.hash.wait")
+                .description("Time from submitting a password hash until its result, queueing included")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.hash.rejected")
+                .description("Password hashes refused because the hashing queue was full")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hash.queue", executor, e -> e.getQueue().size())
+                .description("Password hashes waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(encodeTimer, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(matchesTimer, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Cheap (parses the hash), stays on the caller
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Timer timer, Supplier<T> hash) {
+        long submitted = System.nanoTime();
+        Future<T> result;
+        try {
+            result = executor.submit(() -> timer.record(hash));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException(
+                    "Too many logins in progress (" + queueCapacity + " waiting), try again shortly");
+        }
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing");
+        } finally {
+            waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.password.hash")
+                .description("Time spent hashing or verifying a password")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,95 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Retries @RetryOnConflict methods that fail with a ConcurrencyFailureException
+// (optimistic lock, deadlock, lock timeout). Runs outside @Transactional so
+// every attempt starts a fresh transaction, and waits a random time up to an
+// exponentially growing cap between attempts so the losers don't collide again.
+//
+// Metrics, by operation (method name, inventory and checkout writes alike):
+//   db.writes             calls
+//   db.write.conflicts    attempts that lost a race (rate = conflicts / writes)
+//   db.write.exhausted    calls that failed after the last attempt
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConflictRetryAspect {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseDelayNanos;
+    private final long maxDelayNanos;
+
+    public ConflictRetryAspect(MeterRegistry meterRegistry,
+                               @Value("${app.inventory.retry.max-attempts:5}") int maxAttempts,
+                               @Value("${app.inventory.retry.base-delay:PT0.005S}") Duration baseDelay,
+                               @Value("${app.inventory.retry.max-delay:PT0.2S}") Duration maxDelay) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be positive: " + maxAttempts);
+        }
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayNanos = baseDelay.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+    }
+
+    @Around("@annotation(com.omar.isdb62.pharmacy_management_backend.configaration.RetryOnConflict)")
+    public Object retry(ProceedingJoinPoint call) throws Throwable {
+        // Joined an outer transaction: it is rollback-only after a conflict,
+        // only the caller that owns it can retry
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return call.proceed();
+        }
+
+        String operation = call.getSignature().getName();
+        counter("db.writes", operation).increment();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.proceed();
+            } catch (ConcurrencyFailureException e) {
+                counter("db.write.conflicts", operation).increment();
+                if (attempt >= maxAttempts) {
+                    counter("db.write.exhausted", operation).increment();
+                    throw e;
+                }
+                log.debug("{} lost a write race (attempt {}), retrying", operation, attempt);
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    // Full jitter: uniform in [0, min(max, base * 2^(attempt - 1))]
+    long delayNanos(int attempt) {
+        long cap = Math.min(maxDelayNanos, baseDelayNanos << Math.min(attempt - 1, 20));
+        return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private void backOff(int attempt, ConcurrencyFailureException cause) {
+        try {
+            Thread.sleep(Duration.ofNanos(delayNanos(attempt)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name).tag("operation", operation).register(meterRegistry);
+    }
+}
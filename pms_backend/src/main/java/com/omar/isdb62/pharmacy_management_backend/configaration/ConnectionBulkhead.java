@@ -0,0 +1,72 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caps how many threads may be waiting on the connection pool at once. The
+// pool already caps the connections PostgreSQL sees, but with virtual threads
+// every request gets a thread, so a burst would otherwise park thousands of
+// them in the pool for the whole connection timeout. Threads beyond the cap
+// fail straight away (Spring turns it into a CannotGetJdbcConnectionException).
+public class ConnectionBulkhead extends DelegatingDataSource implements AutoCloseable {
+
+    private final Semaphore waiting;
+    private final int maxWaiting;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ConnectionBulkhead(DataSource pool, int maxWaiting) {
+        super(pool);
+        this.waiting = new Semaphore(maxWaiting);
+        this.maxWaiting = maxWaiting;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        enter();
+        try {
+            return super.getConnection();
+        } finally {
+            waiting.release();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        enter();
+        try {
+            return super.getConnection(username, password);
+        } finally {
+            waiting.release();
+        }
+    }
+
+    public int getWaiting() {
+        return maxWaiting - waiting.availablePermits();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    // The context closes this instead of the pool it wraps
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+
+    private void enter() throws SQLException {
+        if (!waiting.tryAcquire()) {
+            rejected.incrementAndGet();
+            throw new SQLTransientConnectionException(
+                    maxWaiting + " threads are already waiting for a database connection, try again");
+        }
+    }
+}
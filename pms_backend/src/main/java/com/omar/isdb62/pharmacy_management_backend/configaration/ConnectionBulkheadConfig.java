@@ -0,0 +1,48 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// Puts the application DataSource behind a ConnectionBulkhead when
+// app.datasource.bulkhead.max-waiting is set (the virtual-threads profile
+// does). Pool metrics and health still see the pool, they unwrap it.
+//
+// Metrics: datasource.bulkhead.waiting, datasource.bulkhead.rejected
+@Configuration
+public class ConnectionBulkheadConfig {
+
+    @Bean
+    static BeanPostProcessor connectionBulkheadPostProcessor(Environment environment) {
+        int maxWaiting = environment.getProperty("app.datasource.bulkhead.max-waiting", Integer.class, 0);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (maxWaiting > 0 && bean instanceof DataSource pool && !(bean instanceof ConnectionBulkhead)) {
+                    return new ConnectionBulkhead(pool, maxWaiting);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder connectionBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConnectionBulkhead bulkhead) {
+                Gauge.builder("datasource.bulkhead.waiting", bulkhead, ConnectionBulkhead::getWaiting)
+                        .description("Threads waiting for a pooled connection")
+                        .register(registry);
+                FunctionCounter.builder("datasource.bulkhead.rejected", bulkhead, ConnectionBulkhead::getRejected)
+                        .description("Connection requests turned away because too many threads were waiting")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -40,10 +40,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // Get the JWT token from Authorization header
             String jwt = getJwtFromRequest(request);
 
+            // Validate the token and extract its claims (data inside the token) in one parse
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseToken(jwt).orElse(null) : null;
+
             // If the token is valid
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                // Extract claims (data inside the token)
-                Claims claims = tokenProvider.getClaimsFromToken(jwt);
+            if (claims != null) {
                 String username = claims.getSubject();
                 Long userId = claims.get("id", Long.class);
                 String email = claims.get("email", String.class);
@@ -0,0 +1,299 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+// HS512 signing keys shared by every node through one properties file:
+//
+//   active=<kid>
+//   key.<kid>=<base64 key, 64 bytes>
+//   created.<kid>=<epoch millis>
+//
+// Tokens are signed with the active key and carry its kid in the header; any
+// key in the file verifies. To rotate, add a key and point "active" at it (or
+// call rotate()), other nodes pick it up on the next reload. Old keys stay
+// until every token they signed has expired.
+@Slf4j
+@Component
+public class JwtKeyRing extends SigningKeyResolverAdapter {
+
+    private static final int KEY_BYTES = 64;
+    // Don't look at the file more than this often for the same unknown kid
+    private static final Duration UNKNOWN_KID_RECHECK = Duration.ofSeconds(5);
+
+    private final Path file;
+    private final long tokenLifetimeMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final ReentrantLock applyLock = new ReentrantLock();
+    // Per kid, so tokens with made-up kids can't hold back a key that was just rotated in
+    private final Cache<String, Boolean> recentUnknownKids = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(UNKNOWN_KID_RECHECK)
+            .build();
+
+    private volatile KeySet keys;
+
+    public JwtKeyRing(@Value("${app.jwt.keyring-file}") String file,
+                      @Value("${app.jwt.expiration}") long tokenLifetimeMillis) {
+        this.file = Path.of(file).toAbsolutePath();
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (Files.notExists(file)) {
+            createInitialFile();
+        }
+        keys = read();
+        log.info("Loaded {} JWT signing key(s) from {}, active kid {}", keys.keys().size(), file, keys.activeKid());
+    }
+
+    public String activeKid() {
+        return keys.activeKid();
+    }
+
+    public SecretKey activeKey() {
+        KeySet current = keys;
+        return current.keys().get(current.activeKid());
+    }
+
+    // Increases whenever the set of keys changes, so callers can drop anything
+    // they verified with a key that may be gone
+    public long generation() {
+        return keys.generation();
+    }
+
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String kid = header.getKeyId();
+        if (kid == null) {
+            throw new SignatureException("JWT has no key id");
+        }
+        SecretKey key = keys.keys().get(kid);
+        if (key == null && reloadForUnknownKid(kid)) {
+            key = keys.keys().get(kid);
+        }
+        if (key == null) {
+            throw new SignatureException("Unknown JWT key id " + kid);
+        }
+        return key;
+    }
+
+    // Picks up keys added or rotated by another node or by hand. A file that
+    // is half written or hand-edited wrong (no active key, bad base64, short
+    // key) must not take down the request that triggered the reload.
+    @Scheduled(fixedDelayString = "${app.jwt.keyring-reload-interval:PT1M}")
+    public void reload() {
+        try {
+            if (!Files.getLastModifiedTime(file).equals(keys.lastModified())) {
+                apply(read());
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.error("Could not reload JWT keyring {}, keeping the current keys", file, ex);
+        }
+    }
+
+    // Adds a new active key and drops keys whose tokens can no longer be valid.
+    // Runs under a file lock so nodes rotating at the same time don't lose keys.
+    @Scheduled(cron = "${app.jwt.key-rotation-cron:-}")
+    public void rotate() {
+        try (FileChannel channel = FileChannel.open(lockFile(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            KeySet current = read();
+            // Another node rotated since we last looked, its key will do
+            if (!current.activeKid().equals(keys.activeKid())) {
+                apply(current);
+                return;
+            }
+
+            long now = System.currentTimeMillis();
+
+            Properties properties = current.toProperties();
+            String kid = newKid(now);
+            properties.setProperty("active", kid);
+            properties.setProperty("key." + kid, Base64.getEncoder().encodeToString(newKeyBytes()));
+            properties.setProperty("created." + kid, Long.toString(now));
+            prune(properties, current, now);
+
+            write(properties, StandardCopyOption.REPLACE_EXISTING);
+            apply(read());
+            log.info("Rotated JWT signing key, active kid is now {}", kid);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not rotate JWT keyring " + file, ex);
+        }
+    }
+
+    // A key stops being needed once the key after it has been active for a
+    // full token lifetime
+    private void prune(Properties properties, KeySet current, long now) {
+        List<Map.Entry<String, Long>> byAge = new ArrayList<>(current.created().entrySet());
+        byAge.sort(Map.Entry.comparingByValue());
+        for (int i = 0; i < byAge.size(); i++) {
+            long supersededAt = i + 1 < byAge.size() ? byAge.get(i + 1).getValue() : now;
+            String kid = byAge.get(i).getKey();
+            if (!kid.equals(current.activeKid()) && supersededAt + tokenLifetimeMillis < now) {
+                properties.remove("key." + kid);
+                properties.remove("created." + kid);
+            }
+        }
+    }
+
+    // reload() only reads the file when its modified time changed, so a kid
+    // that is new here costs one stat and a rotated key is found at once
+    private boolean reloadForUnknownKid(String kid) {
+        if (recentUnknownKids.asMap().putIfAbsent(kid, Boolean.TRUE) != null) {
+            return false;
+        }
+        reload();
+        return true;
+    }
+
+    private void apply(KeySet loaded) {
+        applyLock.lock();
+        try {
+            KeySet current = keys;
+            if (current.keys().keySet().equals(loaded.keys().keySet())
+                    && current.activeKid().equals(loaded.activeKid())) {
+                keys = loaded.withGeneration(current.generation());
+                return;
+            }
+            keys = loaded.withGeneration(current.generation() + 1);
+        } finally {
+            applyLock.unlock();
+        }
+        log.info("JWT keyring changed, {} key(s), active kid {}", loaded.keys().size(), loaded.activeKid());
+    }
+
+    // First node to start writes the file, the others read what it wrote
+    private void createInitialFile() {
+        long now = System.currentTimeMillis();
+        String kid = newKid(now);
+        Properties properties = new Properties();
+        properties.setProperty("active", kid);
+        properties.setProperty("key." + kid, Base64.getEncoder().encodeToString(newKeyBytes()));
+        properties.setProperty("created." + kid, Long.toString(now));
+        try {
+            write(properties);
+            log.info("Created JWT keyring {} with kid {}", file, kid);
+        } catch (FileAlreadyExistsException ex) {
+            log.info("JWT keyring {} was created by another node", file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not create JWT keyring " + file, ex);
+        }
+    }
+
+    // Written next to the target and moved into place, readers never see half a file
+    private void write(Properties properties, CopyOption... options) throws IOException {
+        Path dir = file.getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            restrictPermissions(tmp);
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.ISO_8859_1)) {
+                properties.store(writer, "JWT signing keys, keep private");
+            }
+            if (Arrays.asList(options).contains(StandardCopyOption.REPLACE_EXISTING)) {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                // Fails when the file exists, unlike an atomic move
+                Files.createLink(file, tmp);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private KeySet read() {
+        try {
+            FileTime lastModified = Files.getLastModifiedTime(file);
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+                properties.load(reader);
+            }
+
+            Map<String, SecretKey> loaded = new HashMap<>();
+            Map<String, Long> created = new HashMap<>();
+            for (String name : properties.stringPropertyNames()) {
+                if (name.startsWith("key.")) {
+                    String kid = name.substring("key.".length());
+                    loaded.put(kid, Keys.hmacShaKeyFor(Base64.getDecoder().decode(properties.getProperty(name).trim())));
+                    created.put(kid, Long.parseLong(properties.getProperty("created." + kid, "0").trim()));
+                }
+            }
+            String active = properties.getProperty("active", "").trim();
+            if (!loaded.containsKey(active)) {
+                throw new IllegalStateException("JWT keyring " + file + " has no key for active kid '" + active + "'");
+            }
+            return new KeySet(active, Map.copyOf(loaded), Map.copyOf(created), lastModified, 0);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not read JWT keyring " + file, ex);
+        }
+    }
+
+    private Path lockFile() {
+        return file.resolveSibling(file.getFileName() + ".lock");
+    }
+
+    private byte[] newKeyBytes() {
+        byte[] bytes = new byte[KEY_BYTES];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private String newKid(long now) {
+        return Long.toString(now, 36) + "-" + Integer.toString(random.nextInt(36 * 36 * 36), 36);
+    }
+
+    private static void restrictPermissions(Path path) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException ex) {
+            // Not a POSIX file system
+        }
+    }
+
+    private record KeySet(String activeKid, Map<String, SecretKey> keys, Map<String, Long> created,
+                          FileTime lastModified, long generation) {
+
+        KeySet withGeneration(long generation) {
+            return new KeySet(activeKid, keys, created, lastModified, generation);
+        }
+
+        Properties toProperties() {
+            Properties properties = new Properties();
+            properties.setProperty("active", activeKid);
+            keys.forEach((kid, key) -> {
+                properties.setProperty("key." + kid, Base64.getEncoder().encodeToString(key.getEncoded()));
+                properties.setProperty("created." + kid, Long.toString(created.getOrDefault(kid, 0L)));
+            });
+            return properties;
+        }
+    }
+}
@@ -2,26 +2,38 @@ package com.omar.isdb62.pharmacy_management_backend.configaration;
 
 import com.omar.isdb62.pharmacy_management_backend.model.CustomUserDetails;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 @Slf4j
 public class JwtTokenProvider {
 
-    // Secret key for signing the JWT token
-    private final SecretKey secretKey = Keys.secretKeyFor(SignatureAlgorithm.HS512);
+    // Signing keys shared by all nodes, the token's kid picks the verification key
+    private final JwtKeyRing keyRing;
+
+    // Built once, the parser is immutable and thread safe
+    private final JwtParser jwtParser;
+
+    private final VerifiedTokenCache tokenCache;
 
     // Expiration time in milliseconds (configured in application.properties)
     @Value("${app.jwt.expiration}")
     private int jwtExpirationMs;
 
+    public JwtTokenProvider(JwtKeyRing keyRing, @Value("${app.jwt.cache-size:10000}") int cacheSize) {
+        this.keyRing = keyRing;
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKeyResolver(keyRing)
+                .build();
+        this.tokenCache = new VerifiedTokenCache(cacheSize);
+    }
+
     // Generate JWT token using user's email
     public String createToken(Authentication authentication) {
         CustomUserDetails userPrincipal = (CustomUserDetails) authentication.getPrincipal();
@@ -30,36 +42,31 @@ public class JwtTokenProvider {
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.activeKid())
                 .setSubject(userPrincipal.getEmail()) // Set email as subject
                 .claim("id", userPrincipal.getId())
                 .claim("email", userPrincipal.getEmail())
                 .claim("role", userPrincipal.getRole())
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(secretKey)
+                .signWith(keyRing.activeKey(), SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    // Extract email from token (used as username)
-    public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject(); // subject holds the email
-    }
-
-    // Validate if token is correctly signed and not expired
-    public boolean validateToken(String token) {
+    // Validate and extract in one go: the signature is checked once per token,
+    // later requests with the same token are served from the cache until it expires
+    public Optional<Claims> parseToken(String token) {
+        // A key may have been removed from the ring, only trust what the current ring verified
+        long generation = keyRing.generation();
+        Claims cached = tokenCache.get(generation, token, System.currentTimeMillis());
+        if (cached != null) {
+            return Optional.of(cached);
+        }
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(secretKey)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (SecurityException ex) {
+            Claims claims = jwtParser.parseClaimsJws(token).getBody();
+            tokenCache.put(generation, token, claims);
+            return Optional.of(claims);
+        } catch (io.jsonwebtoken.security.SecurityException ex) {
             log.error("Invalid JWT signature");
         } catch (MalformedJwtException ex) {
             log.error("Invalid JWT token");
@@ -70,15 +77,21 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             log.error("JWT claims string is empty");
         }
-        return false;
+        return Optional.empty();
+    }
+
+    // Extract email from token (used as username)
+    public String getEmailFromToken(String token) {
+        return getClaimsFromToken(token).getSubject(); // subject holds the email
+    }
+
+    // Validate if token is correctly signed and not expired
+    public boolean validateToken(String token) {
+        return parseToken(token).isPresent();
     }
 
     // Extract all claims (payload) from token
     public Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseToken(token).orElseThrow(() -> new JwtException("Invalid or expired JWT token"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Runs the method again, in a new transaction, when it loses a write race
+// (optimistic lock conflict, deadlock). See ConflictRetryAspect.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+}
@@ -1,5 +1,7 @@
 package com.omar.isdb62.pharmacy_management_backend.configaration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -10,7 +12,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -53,6 +54,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/access-company-medicine/**").permitAll()
                         .requestMatchers("/api/**").permitAll()
                         .requestMatchers("/api/generic/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
 
                         .anyRequest().authenticated()
                 )
@@ -71,10 +73,14 @@ public class SecurityConfig {
         return authConfig.getAuthenticationManager();
     }
 
-    // Password encoder to hash and verify passwords
+    // Password encoder to hash and verify passwords, BCrypt runs on its own
+    // bounded pool (threads 0 = half the cores) so logins cannot starve checkout
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                                  @Value("${app.auth.hashing.threads:0}") int threads,
+                                                  @Value("${app.auth.hashing.queue-capacity:32}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(), poolSize, queueCapacity, meterRegistry);
     }
 
     // Allow requests from Angular (frontend) using CORS
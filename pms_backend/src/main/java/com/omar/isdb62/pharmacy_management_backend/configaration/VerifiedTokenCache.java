@@ -0,0 +1,49 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+
+// Bounded cache of tokens whose signature has already been checked. An entry
+// is only served until the token's own expiry, after that it is parsed (and
+// rejected) again like any other token. Entries are keyed by the keyring
+// generation they were verified under, so once the ring changes nothing
+// verified before is served again; the old entries just age out.
+class VerifiedTokenCache {
+
+    private final Cache<Key, Entry> entries;
+
+    VerifiedTokenCache(int maxSize) {
+        this.entries = maxSize > 0 ? Caffeine.newBuilder().maximumSize(maxSize).build() : null;
+    }
+
+    Claims get(long keyGeneration, String token, long nowMillis) {
+        if (entries == null) {
+            return null;
+        }
+        Key key = new Key(keyGeneration, token);
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis() <= nowMillis) {
+            entries.invalidate(key);
+            return null;
+        }
+        return entry.claims();
+    }
+
+    // keyGeneration is the one read before the token was verified
+    void put(long keyGeneration, String token, Claims claims) {
+        if (entries == null || claims.getExpiration() == null) {
+            return;
+        }
+        entries.put(new Key(keyGeneration, token), new Entry(claims, claims.getExpiration().getTime()));
+    }
+
+    private record Key(long keyGeneration, String token) {
+    }
+
+    private record Entry(Claims claims, long expiresAtMillis) {
+    }
+}
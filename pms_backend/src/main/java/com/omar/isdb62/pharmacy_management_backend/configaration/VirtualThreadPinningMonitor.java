@@ -0,0 +1,95 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Watches the JFR jdk.VirtualThreadPinned event while virtual threads are on.
+// A virtual thread that blocks inside synchronized (or a native frame) keeps
+// its carrier thread, and with few carriers that stalls every other request.
+// Each pinning is timed in jvm.threads.virtual.pinned, each distinct stack is
+// logged once so the offending synchronized block can be found and replaced
+// by a ReentrantLock. Known library sites: JRSwapFile/JRAbstractLRUVirtualizer
+// do their swap file IO under synchronized, which is why report jobs keep
+// their platform thread pool.
+@Slf4j
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.omar.isdb62";
+    private static final int LOGGED_FRAMES = 12;
+    private static final int MAX_LOGGED_STACKS = 200;
+
+    private final boolean enabled;
+    private final Duration threshold;
+    private final Timer pinned;
+    private final Set<String> loggedStacks = ConcurrentHashMap.newKeySet();
+
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${app.threads.pinning-monitor.enabled:${spring.threads.virtual.enabled:false}}") boolean enabled,
+                                       @Value("${app.threads.pinning-monitor.threshold:PT0.02S}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads held on to their carrier while blocked")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::record);
+        stream.startAsync();
+        log.info("Reporting virtual thread pinning longer than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        if (event.getStackTrace() == null) {
+            return;
+        }
+        List<String> frames = event.getStackTrace().getFrames().stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .map(VirtualThreadPinningMonitor::format)
+                .toList();
+        String site = frames.stream().filter(frame -> frame.startsWith(APP_PACKAGE)).findFirst()
+                .orElse(frames.isEmpty() ? "unknown" : frames.get(0));
+        String stack = frames.stream().limit(LOGGED_FRAMES).collect(Collectors.joining("\n\tat "));
+        if (loggedStacks.size() < MAX_LOGGED_STACKS && loggedStacks.add(stack)) {
+            log.warn("Virtual thread pinned for {} ms, called from {}\n\tat {}",
+                    event.getDuration().toMillis(), site, stack);
+        }
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line " + frame.getLineNumber() + ")";
+    }
+}
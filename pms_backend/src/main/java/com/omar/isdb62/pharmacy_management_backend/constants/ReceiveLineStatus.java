@@ -0,0 +1,10 @@
+package com.omar.isdb62.pharmacy_management_backend.constants;
+
+public enum ReceiveLineStatus {
+    // New item added to the inventory
+    CREATED,
+    // Quantity added to an existing item, prices replaced
+    UPDATED,
+    // Line was invalid, nothing written for it
+    REJECTED
+}
@@ -0,0 +1,13 @@
+package com.omar.isdb62.pharmacy_management_backend.constants;
+
+public enum ReportJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this == DONE || this == FAILED || this == CANCELLED;
+    }
+}
@@ -5,12 +5,17 @@ import com.omar.isdb62.pharmacy_management_backend.configaration.JwtTokenProvide
 import com.omar.isdb62.pharmacy_management_backend.dto.LoginRequest;
 import com.omar.isdb62.pharmacy_management_backend.dto.RegisterRequest;
 import com.omar.isdb62.pharmacy_management_backend.dto.UserResponse;
+import com.omar.isdb62.pharmacy_management_backend.exception.LoginThrottledException;
+import com.omar.isdb62.pharmacy_management_backend.exception.PasswordHashingBusyException;
 import com.omar.isdb62.pharmacy_management_backend.model.CustomUserDetails;
 import com.omar.isdb62.pharmacy_management_backend.model.User;
+import com.omar.isdb62.pharmacy_management_backend.service.LoginThrottle;
 import com.omar.isdb62.pharmacy_management_backend.service.UserService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -24,6 +29,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @CrossOrigin
 @RestController
@@ -33,14 +39,17 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider jwtTokenProvider;
     private final UserService userService;
+    private final LoginThrottle loginThrottle;
 
     // Constructor injection for required services
     public AuthController(AuthenticationManager authenticationManager,
                           JwtTokenProvider jwtTokenProvider,
-                          UserService userService) {
+                          UserService userService,
+                          LoginThrottle loginThrottle) {
         this.authenticationManager = authenticationManager;
         this.jwtTokenProvider = jwtTokenProvider;
         this.userService = userService;
+        this.loginThrottle = loginThrottle;
     }
 
     // ========== REGISTER USER ==========
@@ -74,18 +83,23 @@ public class AuthController {
             userResponse.setSalary(savedUser.getSalary());
 
             return ResponseEntity.status(HttpStatus.CREATED).body(userResponse);
+        } catch (PasswordHashingBusyException e) {
+            return tooManyRequests(e.getMessage(), 1);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
     // ========== LOGIN USER ==========
-    // Endpoint for user login
+    // Endpoint for user login. Throttled per client IP and per account, and
+    // answered with 429 while the password hashing pool is full.
     @PostMapping("/login")
     public ResponseEntity<?> authenticateUser(HttpServletRequest request,
                                               HttpServletResponse response,
                                               @Valid @RequestBody LoginRequest loginRequest) {
         try {
+            loginThrottle.acquire(request.getRemoteAddr(), loginRequest.email());
+
             // Try to authenticate the user with email and password
             Authentication authentication = authenticationManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -121,6 +135,10 @@ public class AuthController {
             responseData.put("user", userData);
 
             return ResponseEntity.ok(responseData);
+        } catch (LoginThrottledException e) {
+            return tooManyRequests(e.getMessage(), Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000));
+        } catch (PasswordHashingBusyException e) {
+            return tooManyRequests(e.getMessage(), 1);
         } catch (AuthenticationException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body("Invalid username or password");
@@ -134,9 +152,10 @@ public class AuthController {
         String jwt = getJwtFromRequest(request);
 
         //Validate the token
-        if (jwt != null && jwtTokenProvider.validateToken(jwt)) {
+        Optional<Claims> claims = jwt != null ? jwtTokenProvider.parseToken(jwt) : Optional.empty();
+        if (claims.isPresent()) {
             //  Get email instead of username from token (we use email as subject)
-            String email = jwtTokenProvider.getEmailFromToken(jwt);
+            String email = claims.get().getSubject();
 
             //  Load user details by email (your CustomUserDetailsService should support this)
             UserDetails userDetails = userService.loadUserByUsername(email); // ❗You may want to rename this method to `loadUserByEmail` for clarity
@@ -162,6 +181,13 @@ public class AuthController {
     }
 
 
+    //========== HELPER METHOD: 429 with Retry-After in seconds ==========
+    private ResponseEntity<?> tooManyRequests(String message, long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(message);
+    }
+
     //========== HELPER METHOD: Extract JWT token from request ==========
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
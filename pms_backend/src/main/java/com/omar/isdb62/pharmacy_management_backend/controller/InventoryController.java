@@ -1,14 +1,23 @@
 package com.omar.isdb62.pharmacy_management_backend.controller;
 
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryCatalog;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryChangesResponse;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryPageResponse;
+import com.omar.isdb62.pharmacy_management_backend.dto.ReceiveLineResult;
 import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
 import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
 import com.omar.isdb62.pharmacy_management_backend.service.InventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("api/inventory")
@@ -22,11 +31,39 @@ public class InventoryController {
 //        return inventoryService.getAllMedicine();
 //    }
 
+    // Answers 304 when the client's If-None-Match still matches the catalog
     @GetMapping("/all")
-    public List<Inventory> getAllInventory() {
-        return inventoryService.getAllInventorySortedByItemName();
+    public ResponseEntity<List<Inventory>> getAllInventory(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        InventoryCatalog catalog = inventoryService.getCatalog();
+        if (ifNoneMatch != null && ifNoneMatch.contains(catalog.etag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(catalog.etag()).build();
+        }
+        return ResponseEntity.ok().eTag(catalog.etag()).body(catalog.items());
     }
 
+    // Delta sync: rows written and deleted since the version the client got last
+    // time (0 for everything)
+    @GetMapping("/changed-since")
+    public ResponseEntity<?> getChangedSince(@RequestParam long version) {
+        if (version < 0) {
+            return ResponseEntity.badRequest().body(Map.of("message", "version must not be negative"));
+        }
+        InventoryChangesResponse changes = inventoryService.getChangesSince(version);
+        return ResponseEntity.ok(changes);
+    }
+
+    // Paged version of /all for large catalogs, follow nextCursor until it is null
+    @GetMapping("/page")
+    public ResponseEntity<?> getInventoryPage(@RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer size) {
+        try {
+            InventoryPageResponse page = inventoryService.getInventoryPage(cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
 
     @GetMapping("/search")
     public List<Inventory> getMedByName(@RequestParam String name) {
@@ -40,6 +77,11 @@ public class InventoryController {
         return ResponseEntity.ok(saved);
     }
 
+    // Whole supplier delivery in one request, with a result per line
+    @PostMapping("/receive-bulk")
+    public ResponseEntity<List<ReceiveLineResult>> receiveDelivery(@RequestBody List<Inventory> lines) {
+        return ResponseEntity.ok(inventoryService.receiveDelivery(lines));
+    }
 
     @DeleteMapping("/delete-by-name-and-category")
     public ResponseEntity<String> deleteByNameAndCategory(@RequestParam String name,
@@ -67,6 +109,13 @@ public class InventoryController {
         return ResponseEntity.ok(inventoryService.getSufficientStockItems());
     }
 
+    // Server-Sent Events: a "snapshot" of the low-stock list, then a "low-stock"
+    // event whenever a low item changes or an item crosses its reorder level
+    @GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLowStock() {
+        return inventoryService.subscribeLowStock();
+    }
+
     // ** Low stock working area end **
 
     @Autowired
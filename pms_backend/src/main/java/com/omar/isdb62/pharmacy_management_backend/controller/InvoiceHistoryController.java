@@ -1,29 +1,106 @@
 package com.omar.isdb62.pharmacy_management_backend.controller;
 
+import com.omar.isdb62.pharmacy_management_backend.dto.CheckoutResult;
+import com.omar.isdb62.pharmacy_management_backend.dto.InvoiceArchiveMonth;
+import com.omar.isdb62.pharmacy_management_backend.dto.SalesItemTotals;
+import com.omar.isdb62.pharmacy_management_backend.dto.SalesSummaryResponse;
+import com.omar.isdb62.pharmacy_management_backend.exception.CheckoutBusyException;
+import com.omar.isdb62.pharmacy_management_backend.exception.IdempotencyKeyReusedException;
+import com.omar.isdb62.pharmacy_management_backend.exception.InsufficientStockException;
+import com.omar.isdb62.pharmacy_management_backend.model.Invoice;
 import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
 import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.service.InvoiceArchive;
+import com.omar.isdb62.pharmacy_management_backend.service.InvoiceArchiver;
+import com.omar.isdb62.pharmacy_management_backend.service.InvoiceExportService;
+import com.omar.isdb62.pharmacy_management_backend.service.CheckoutBatcher;
+import com.omar.isdb62.pharmacy_management_backend.service.IdempotentCheckoutService;
 import com.omar.isdb62.pharmacy_management_backend.service.InvoiceHistoryService;
+import com.omar.isdb62.pharmacy_management_backend.service.InvoicePartitionMaintainer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/invoice")
 public class InvoiceHistoryController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     @Autowired
     private InvoiceHistoryService invoiceHistoryService;
 
+    @Autowired
+    private InvoiceExportService invoiceExportService;
+
+    @Autowired
+    private IdempotentCheckoutService idempotentCheckoutService;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
     // GET all invoice_history
     @GetMapping("/all")
     public List<InvoiceHistory> getAllInvoices() {
         return invoiceHistoryService.getAllInvoiceHistories();
     }
 
+    // Invoice headers with their totals, newest first, for listing screens.
+    // Lines come from GET /{invoiceNumber}.
+    @GetMapping("/headers")
+    public List<Invoice> getInvoiceHeaders(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return invoiceHistoryService.getInvoices(from, to);
+    }
+
+    // Whole history (or a date range) as newline-delimited JSON, streamed while
+    // it is read. Gzipped when the client accepts it.
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (OutputStream zipped = new GZIPOutputStream(out, 8192)) {
+                    invoiceExportService.writeNdjson(from, to, zipped);
+                }
+            } else {
+                invoiceExportService.writeNdjson(from, to, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoice-history.ndjson")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
     // GET by invoice number
     @GetMapping("/{invoiceNumber}")
     public ResponseEntity<List<InvoiceHistory>> getByInvoiceNumber(@PathVariable String invoiceNumber) {
@@ -32,9 +109,45 @@ public class InvoiceHistoryController {
     }
 
     //ChatGPT NOSTO code if not work above code then apply this code riha
+    // With an Idempotency-Key a retried request returns the invoice of the
+    // first one instead of selling again (Idempotent-Replayed: true). With
+    // group commit on, the cart is written together with other tills' carts.
     @PostMapping("/create")
-    public ResponseEntity<List<InvoiceHistory>> createInvoice(@RequestBody List<InvoiceHistory> invoices) {
-        return ResponseEntity.ok(invoiceHistoryService.createInvoices(invoices));
+    public ResponseEntity<?> createInvoice(
+            @RequestBody List<InvoiceHistory> invoices,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        try {
+            if (idempotencyKey != null
+                    && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+                return ResponseEntity.badRequest()
+                        .body(IDEMPOTENCY_KEY + " must be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+            }
+            CheckoutResult result;
+            if (checkoutBatcher.isEnabled()) {
+                result = checkoutBatcher.checkout(idempotencyKey, invoices);
+            } else if (idempotencyKey != null) {
+                result = idempotentCheckoutService.createInvoices(idempotencyKey, invoices);
+            } else {
+                return ResponseEntity.ok(invoiceHistoryService.createInvoices(invoices));
+            }
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (idempotencyKey != null) {
+                response.header("Idempotent-Replayed", String.valueOf(result.replayed()));
+            }
+            return response.body(result.lines());
+        } catch (CheckoutBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(e.getMessage());
+        } catch (IdempotencyKeyReusedException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        } catch (InsufficientStockException e) {
+            // Nothing was sold, tell the till exactly which lines are short
+            Map<String, Object> body = new HashMap<>();
+            body.put("message", e.getMessage());
+            body.put("shortages", e.getShortages());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        }
     }
 
 
@@ -64,4 +177,87 @@ public class InvoiceHistoryController {
         return invoiceHistoryRepository.findByDate(LocalDate.now());
     }
 
+    //***Sales summary start***
+
+    // Totals and per-day rows for a date range (defaults to today)
+    @GetMapping("/summary")
+    public SalesSummaryResponse getSalesSummary(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        return invoiceHistoryService.getSalesSummary(from != null ? from : end, end);
+    }
+
+    @GetMapping("/summary/items")
+    public List<SalesItemTotals> getSalesByItem(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        return invoiceHistoryService.getSalesByItem(from != null ? from : end, end);
+    }
+
+    @PostMapping("/summary/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> rebuildSalesSummary() {
+        invoiceHistoryService.rebuildSalesSummary();
+        return ResponseEntity.ok("Sales summary rebuilt");
+    }
+
+    // ** Sales summary end **
+
+    //***Partitions start***
+
+    @Autowired
+    private InvoicePartitionMaintainer invoicePartitionMaintainer;
+
+    // Months currently in the invoice history
+    @GetMapping("/partitions")
+    public List<String> getPartitions() {
+        return invoicePartitionMaintainer.attachedMonths().stream().map(YearMonth::toString).toList();
+    }
+
+    // month is yyyy-MM
+    @PostMapping("/partitions/{month}/detach")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> detachPartition(@PathVariable String month) {
+        try {
+            invoicePartitionMaintainer.detach(YearMonth.parse(month));
+            return ResponseEntity.ok("Invoice history for " + month + " detached");
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // ** Partitions end **
+
+    //***Archive start***
+
+    @Autowired
+    private InvoiceArchive invoiceArchive;
+
+    @Autowired
+    private InvoiceArchiver invoiceArchiver;
+
+    // Archived months (manifest)
+    @GetMapping("/archive")
+    public List<InvoiceArchiveMonth> getArchivedMonths() {
+        return invoiceArchive.months();
+    }
+
+    // Archives one month now instead of waiting for the schedule, month is yyyy-MM
+    @PostMapping("/archive/{month}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<String> archiveMonth(@PathVariable String month) {
+        try {
+            int lines = invoiceArchiver.archiveMonth(YearMonth.parse(month));
+            return ResponseEntity.ok("Archived " + lines + " invoice lines of " + month);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(e.getMessage());
+        }
+    }
+
+    // ** Archive end **
+
 }
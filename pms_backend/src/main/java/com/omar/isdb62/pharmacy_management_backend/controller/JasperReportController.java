@@ -1,43 +1,86 @@
 package com.omar.isdb62.pharmacy_management_backend.controller;
 
+import com.omar.isdb62.pharmacy_management_backend.dto.InvoiceHistoryReportFilter;
+import com.omar.isdb62.pharmacy_management_backend.dto.ReportJobResponse;
+import com.omar.isdb62.pharmacy_management_backend.exception.ReportQueueFullException;
+import com.omar.isdb62.pharmacy_management_backend.service.JasperReportService;
+import com.omar.isdb62.pharmacy_management_backend.service.ReportJobService;
 import jakarta.servlet.http.HttpServletResponse;
-import net.sf.jasperreports.engine.*;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
 
-import javax.sql.DataSource;
-import java.io.InputStream;
-import java.sql.Connection;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/reports")
 public class JasperReportController {
 
     @Autowired
-    private DataSource dataSource;
+    private JasperReportService jasperReportService;
+
+    @Autowired
+    private ReportJobService reportJobService;
 
     @GetMapping("/invoice-history")
-    public void generateInvoiceHistoryReport(HttpServletResponse response) throws Exception {
-        ClassPathResource reportResource = new ClassPathResource("report/invoice-history.jrxml");
-        InputStream reportStream = reportResource.getInputStream();
+    public void generateInvoiceHistoryReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String customer,
+            HttpServletResponse response) throws Exception {
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoice-history.pdf");
 
-        JasperReport jasperReport = JasperCompileManager.compileReport(reportStream);
+        InvoiceHistoryReportFilter filter = new InvoiceHistoryReportFilter(from, to, category, customer);
+        jasperReportService.writeInvoiceHistoryReport(filter, response.getOutputStream());
+    }
 
-        try (Connection conn = dataSource.getConnection()) {
-            Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, parameters, conn);
+    //***Report jobs: generated in the background, polled and downloaded when done***
 
-            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
-            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoice-history.pdf");
+    @PostMapping("/jobs/invoice-history")
+    public ResponseEntity<?> submitInvoiceHistoryReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String customer) {
+        try {
+            InvoiceHistoryReportFilter filter = new InvoiceHistoryReportFilter(from, to, category, customer);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(reportJobService.submitInvoiceHistory(filter));
+        } catch (ReportQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        }
+    }
 
-            JasperExportManager.exportReportToPdfStream(jasperPrint, response.getOutputStream());
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ReportJobResponse> getReportJob(@PathVariable String id) {
+        return ResponseEntity.of(reportJobService.getJob(id));
+    }
+
+    @GetMapping("/jobs/{id}/download")
+    public ResponseEntity<Resource> downloadReport(@PathVariable String id) {
+        Optional<Path> output = reportJobService.getOutput(id);
+        if (output.isEmpty()) {
+            return reportJobService.getJob(id).isPresent()
+                    ? ResponseEntity.status(HttpStatus.CONFLICT).build()
+                    : ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=invoice-history.pdf")
+                .body(new FileSystemResource(output.get()));
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<ReportJobResponse> cancelReportJob(@PathVariable String id) {
+        return ResponseEntity.of(reportJobService.cancel(id));
     }
 }
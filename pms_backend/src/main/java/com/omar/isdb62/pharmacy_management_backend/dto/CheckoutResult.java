@@ -0,0 +1,12 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+
+import java.util.List;
+
+// Lines of a checkout, replayed is true when they belong to an earlier request with the same Idempotency-Key
+public record CheckoutResult(
+        List<InvoiceHistory> lines,
+        boolean replayed
+) {
+}
@@ -0,0 +1,12 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+
+import java.util.List;
+
+// The full catalog with a strong ETag over the ids and row versions it holds
+public record InventoryCatalog(
+        List<Inventory> items,
+        String etag
+) {
+}
@@ -0,0 +1,16 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InventoryTombstone;
+
+import java.util.List;
+
+// Inserts/updates and deletes since the client's version. The client applies
+// them (by id) and sends "version" as ?since= next time. A row may be sent
+// again in a later response, applying it twice is harmless.
+public record InventoryChangesResponse(
+        long version,
+        List<Inventory> upserts,
+        List<InventoryTombstone> deletes
+) {
+}
@@ -0,0 +1,15 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import java.math.BigDecimal;
+
+// Just the columns the inventory list screen shows
+public record InventoryListItem(
+        Long id,
+        String itemName,
+        String companyName,
+        String category,
+        String generic,
+        int quantity,
+        BigDecimal unitPrice
+) {
+}
@@ -0,0 +1,11 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import java.util.List;
+
+// One page of the inventory list. nextCursor is null on the last page,
+// otherwise it is passed back as ?cursor= to get the following page.
+public record InventoryPageResponse(
+        List<InventoryListItem> items,
+        String nextCursor
+) {
+}
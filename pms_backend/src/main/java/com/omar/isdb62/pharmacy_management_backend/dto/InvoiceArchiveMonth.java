@@ -0,0 +1,20 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+// Manifest entry of one archived month. The invoice number range lets a
+// lookup skip files that cannot hold the number.
+public record InvoiceArchiveMonth(
+        YearMonth month,
+        String file,
+        int lines,
+        LocalDate firstDate,
+        LocalDate lastDate,
+        String minInvoiceNumber,
+        String maxInvoiceNumber,
+        long bytes,
+        Instant archivedAt
+) {
+}
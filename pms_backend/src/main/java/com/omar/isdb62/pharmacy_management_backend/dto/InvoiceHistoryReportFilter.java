@@ -0,0 +1,12 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import java.time.LocalDate;
+
+// Optional filters of the invoice history report, null means "any"
+public record InvoiceHistoryReportFilter(
+        LocalDate from,
+        LocalDate to,
+        String category,
+        String customer
+) {
+}
@@ -0,0 +1,13 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+
+// Pushed to low-stock subscribers when a low item changes or an item crosses
+// its reorder level. low=false means the item left the low-stock list.
+public record LowStockChange(
+        Inventory item,
+        int reorderLevel,
+        boolean low,
+        boolean crossed
+) {
+}
@@ -0,0 +1,16 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import com.omar.isdb62.pharmacy_management_backend.constants.ReceiveLineStatus;
+
+// Outcome of one delivery line, line is the 0-based index in the request.
+// id and quantity (stock after the receipt) are null for rejected lines.
+public record ReceiveLineResult(
+        int line,
+        String itemName,
+        String category,
+        ReceiveLineStatus status,
+        Long id,
+        Integer quantity,
+        String message
+) {
+}
@@ -0,0 +1,16 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import com.omar.isdb62.pharmacy_management_backend.constants.ReportJobStatus;
+
+import java.time.Instant;
+
+public record ReportJobResponse(
+        String id,
+        String report,
+        ReportJobStatus status,
+        Instant submittedAt,
+        Instant startedAt,
+        Instant finishedAt,
+        String error
+) {
+}
@@ -0,0 +1,14 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import java.time.LocalDate;
+
+public record SalesDayTotals(
+        LocalDate date,
+        Long quantity,
+        Long lineCount,
+        Double subTotal,
+        Double amount,
+        Double discountAmount,
+        Double netPayable
+) {
+}
@@ -0,0 +1,13 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+public record SalesItemTotals(
+        String category,
+        String itemName,
+        Long quantity,
+        Long lineCount,
+        Double subTotal,
+        Double amount,
+        Double discountAmount,
+        Double netPayable
+) {
+}
@@ -0,0 +1,18 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Totals over a date range plus one row per day that had sales
+public record SalesSummaryResponse(
+        LocalDate from,
+        LocalDate to,
+        long quantity,
+        long lineCount,
+        double subTotal,
+        double amount,
+        double discountAmount,
+        double netPayable,
+        List<SalesDayTotals> days
+) {
+}
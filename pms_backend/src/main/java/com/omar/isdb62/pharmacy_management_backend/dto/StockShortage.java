@@ -0,0 +1,11 @@
+package com.omar.isdb62.pharmacy_management_backend.dto;
+
+// One cart line that could not be served from stock, line is the 0-based index in the request
+public record StockShortage(
+        int line,
+        String itemName,
+        String category,
+        int requested,
+        int available
+) {
+}
@@ -0,0 +1,70 @@
+package com.omar.isdb62.pharmacy_management_backend.event;
+
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import lombok.Getter;
+import org.springframework.beans.BeanUtils;
+
+// Published by the inventory write paths so in-memory views (search index etc.)
+// can follow the catalog without going back to the database.
+// After-commit listeners of different transactions don't run in commit order,
+// so every event carries the row's state after the write, never a delta, and
+// the row's version: a view skips an event older than the row it holds.
+@Getter
+public class InventoryChangedEvent {
+
+    public enum Type {
+        UPSERTED,
+        DELETED,
+        // Set-based stock change (checkout), only the key, quantity and version are known
+        STOCK_ADJUSTED
+    }
+
+    private final Type type;
+
+    // Detached copy of the row as it was written, never the managed entity.
+    // Null for STOCK_ADJUSTED.
+    private final Inventory inventory;
+
+    private final String itemName;
+    private final String category;
+    private final int quantity;
+    private final long version;
+
+    private InventoryChangedEvent(Type type, Inventory inventory, String itemName, String category,
+                                  int quantity, long version) {
+        this.type = type;
+        this.inventory = inventory;
+        this.itemName = itemName;
+        this.category = category;
+        this.quantity = quantity;
+        this.version = version;
+    }
+
+    // The entity must be flushed, Hibernate bumps its version on flush
+    public static InventoryChangedEvent upserted(Inventory inventory) {
+        Inventory copy = copyOf(inventory);
+        return new InventoryChangedEvent(Type.UPSERTED, copy, copy.getItemName(), copy.getCategory(),
+                copy.getQuantity(), copy.getVersion());
+    }
+
+    public static InventoryChangedEvent deleted(Inventory inventory) {
+        Inventory copy = copyOf(inventory);
+        return new InventoryChangedEvent(Type.DELETED, copy, copy.getItemName(), copy.getCategory(),
+                copy.getQuantity(), copy.getVersion());
+    }
+
+    public static InventoryChangedEvent stockAdjusted(String itemName, String category, int quantity, long version) {
+        return new InventoryChangedEvent(Type.STOCK_ADJUSTED, null, itemName, category, quantity, version);
+    }
+
+    // The held row was written after this event's write
+    public boolean isOlderThan(Inventory held) {
+        return version < held.getVersion();
+    }
+
+    public static Inventory copyOf(Inventory source) {
+        Inventory copy = new Inventory();
+        BeanUtils.copyProperties(source, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,8 @@
+package com.omar.isdb62.pharmacy_management_backend.exception;
+
+public class CheckoutBusyException extends RuntimeException {
+
+    public CheckoutBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.omar.isdb62.pharmacy_management_backend.exception;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super("Idempotency-Key " + idempotencyKey + " was already used for a different checkout");
+    }
+}
@@ -0,0 +1,21 @@
+package com.omar.isdb62.pharmacy_management_backend.exception;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.StockShortage;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<StockShortage> shortages;
+
+    public InsufficientStockException(List<StockShortage> shortages) {
+        super("Not enough stock for: " + shortages.stream()
+                .map(s -> s.itemName() + " " + s.category()
+                        + " (requested " + s.requested() + ", available " + s.available() + ")")
+                .collect(Collectors.joining(", ")));
+        this.shortages = List.copyOf(shortages);
+    }
+}
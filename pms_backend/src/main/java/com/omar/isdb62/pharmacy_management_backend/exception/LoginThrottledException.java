@@ -0,0 +1,17 @@
+package com.omar.isdb62.pharmacy_management_backend.exception;
+
+import java.time.Duration;
+
+public class LoginThrottledException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public LoginThrottledException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,8 @@
+package com.omar.isdb62.pharmacy_management_backend.exception;
+
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.omar.isdb62.pharmacy_management_backend.exception;
+
+public class ReportQueueFullException extends RuntimeException {
+
+    public ReportQueueFullException(int capacity) {
+        super("Report queue is full (" + capacity + " jobs waiting), try again later");
+    }
+}
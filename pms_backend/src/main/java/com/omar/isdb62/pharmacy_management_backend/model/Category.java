@@ -13,7 +13,8 @@ import lombok.*;
 public class Category {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pms_category_seq")
+    @SequenceGenerator(name = "pms_category_seq", sequenceName = "pms_category_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
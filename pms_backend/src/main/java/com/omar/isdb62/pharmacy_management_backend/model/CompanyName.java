@@ -11,7 +11,8 @@ import lombok.*;
 @Table(name= "pms_company_name")
 public class CompanyName {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pms_company_name_seq")
+    @SequenceGenerator(name = "pms_company_name_seq", sequenceName = "pms_company_name_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
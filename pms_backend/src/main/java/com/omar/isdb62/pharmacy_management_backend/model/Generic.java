@@ -12,7 +12,8 @@ import lombok.*;
 @Table(name = "pms_generic_name")
 public class Generic {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pms_generic_name_seq")
+    @SequenceGenerator(name = "pms_generic_name_seq", sequenceName = "pms_generic_name_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
@@ -5,17 +5,27 @@ import lombok.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name= "flutter_inventory")
+@Table(name= "flutter_inventory", uniqueConstraints = {
+        // One row per item and category, bulk receive upserts on it
+        @UniqueConstraint(name = "uk_flutter_inventory_item_name_category", columnNames = {"item_name", "category"})
+}, indexes = {
+        // Keyset pagination of the inventory list
+        @Index(name = "idx_flutter_inventory_item_name_id", columnList = "item_name, id"),
+        // Delta sync (changed-since)
+        @Index(name = "idx_flutter_inventory_row_version", columnList = "row_version")
+})
 public class Inventory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flutter_inventory_seq")
+    @SequenceGenerator(name = "flutter_inventory_seq", sequenceName = "flutter_inventory_seq", allocationSize = 50)
     private Long id;
 
     //1
@@ -62,4 +72,21 @@ public class Inventory {
     @Column(name = "received_date")
     private LocalDate receivedDate;  // Add this field
 
+    //12 transaction that last wrote the row, see InventorySyncRepository
+    @Column(name = "row_version")
+    private Long rowVersion;
+
+    //13
+    @Column(name = "last_modified")
+    private LocalDateTime lastModified;
+
+    //14 low stock below this quantity, null uses app.inventory.default-reorder-level
+    @Column(name = "reorder_level")
+    private Integer reorderLevel;
+
+    //15 optimistic lock, the JDBC stock updates bump it too
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.omar.isdb62.pharmacy_management_backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Left behind by a deleted inventory row so clients syncing with
+// changed-since learn about the delete
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "flutter_inventory_tombstone", indexes = {
+        @Index(name = "idx_flutter_inventory_tombstone_row_version", columnList = "row_version")
+})
+public class InventoryTombstone {
+
+    // Id of the deleted inventory row
+    @Id
+    private Long id;
+
+    @Column(name = "item_name", nullable = false)
+    private String itemName;
+
+    @Column(nullable = false)
+    private String category;
+
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,80 @@
+package com.omar.isdb62.pharmacy_management_backend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Invoice header: what every line of an invoice shares, plus the totals of
+// its lines so invoice lists never read flutter_invoice_history
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "flutter_invoice")
+public class Invoice {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flutter_invoice_seq")
+    @SequenceGenerator(name = "flutter_invoice_seq", sequenceName = "flutter_invoice_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "invoice_number", nullable = false, unique = true)
+    private String invoiceNumber;
+
+    @Column(name = "customer_name")
+    private String customerName;
+
+    @Column(name = "contact_number")
+    private String contactNumber;
+
+    @Column(nullable = false)
+    private double discount;
+
+    // Day the invoice was issued, no line is dated before it
+    @Column(name = "date", nullable = false)
+    private LocalDate date;
+
+    @Column(name = "line_count", nullable = false)
+    private int lineCount;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(name = "sub_total", nullable = false)
+    private double subTotal;
+
+    @Column(nullable = false)
+    private double amount;
+
+    @Column(name = "discount_amount", nullable = false)
+    private double discountAmount;
+
+    @Column(name = "net_payable", nullable = false)
+    private double netPayable;
+
+    // Only loaded when the lines themselves are asked for
+    @JsonIgnore
+    @OneToMany(mappedBy = "invoice", fetch = FetchType.LAZY)
+    private List<InvoiceHistory> lines = new ArrayList<>();
+
+    // Recomputes the totals, call whenever the lines change
+    public void applyTotals(List<InvoiceHistory> lines) {
+        lineCount = lines.size();
+        quantity = 0;
+        subTotal = 0;
+        amount = 0;
+        discountAmount = 0;
+        netPayable = 0;
+        for (InvoiceHistory line : lines) {
+            quantity += line.getQuantity();
+            subTotal += line.getSubTotal();
+            amount += line.getAmount();
+            discountAmount += line.getDiscountAmount();
+            netPayable += line.getNetPayable();
+        }
+    }
+}
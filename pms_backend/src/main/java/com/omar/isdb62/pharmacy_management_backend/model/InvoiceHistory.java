@@ -1,5 +1,6 @@
 package com.omar.isdb62.pharmacy_management_backend.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -13,19 +14,25 @@ import java.time.LocalDate;
 @Table(name = "flutter_invoice_history")
 public class InvoiceHistory {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "flutter_invoice_history_seq")
+    @SequenceGenerator(name = "flutter_invoice_history_seq", sequenceName = "flutter_invoice_history_seq", allocationSize = 50)
     private Long id;
 
-    //1
-    @Column(name = "invoice_number")
+    // Header of the invoice (flutter_invoice), shared by all its lines
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "invoice_id")
+    private Invoice invoice;
+
+    //1-3 and 10 live on the header. They stay on the line for the
+    // /api/invoice JSON and the archive, taken from the header when there is one.
+    @Transient
     private String invoiceNumber;
 
-    //2
-    @Column(name = "customer_name")
+    @Transient
     private String customerName;
 
-    //3
-    @Column(name = "contact_number")
+    @Transient
     private String contactNumber;
 
     //4
@@ -50,7 +57,7 @@ public class InvoiceHistory {
     //9
     private double amount;
 
-    //10
+    @Transient
     private double discount;
 
     //11
@@ -61,8 +68,23 @@ public class InvoiceHistory {
     @Column(name = "net_payable")
     private double netPayable;
 
-    //13
-    @Column(name = "date")
+    //13 (partition key of flutter_invoice_history)
+    @Column(name = "date", nullable = false)
     private LocalDate date;  // Add this field
 
+    public String getInvoiceNumber() {
+        return invoice != null ? invoice.getInvoiceNumber() : invoiceNumber;
+    }
+
+    public String getCustomerName() {
+        return invoice != null ? invoice.getCustomerName() : customerName;
+    }
+
+    public String getContactNumber() {
+        return invoice != null ? invoice.getContactNumber() : contactNumber;
+    }
+
+    public double getDiscount() {
+        return invoice != null ? invoice.getDiscount() : discount;
+    }
 }
@@ -0,0 +1,23 @@
+package com.omar.isdb62.pharmacy_management_backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// Last invoice sequence number handed out per day, advanced a block at a time
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "invoice_number_counter")
+public class InvoiceNumberCounter {
+
+    @Id
+    @Column(name = "day")
+    private LocalDate day;
+
+    @Column(name = "last_value", nullable = false)
+    private long lastValue;
+}
@@ -11,7 +11,8 @@ import lombok.*;
 @Table(name = "pms_medicine_name")
 public class MedicineName {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pms_medicine_name_seq")
+    @SequenceGenerator(name = "pms_medicine_name_seq", sequenceName = "pms_medicine_name_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true)
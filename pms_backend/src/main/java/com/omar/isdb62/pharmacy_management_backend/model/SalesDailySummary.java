@@ -0,0 +1,36 @@
+package com.omar.isdb62.pharmacy_management_backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Running sales totals per day, category and item, kept in step with
+// flutter_invoice_history by the invoice write paths
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "sales_daily_summary")
+public class SalesDailySummary {
+
+    @EmbeddedId
+    private SalesDailySummaryId id;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    @Column(name = "line_count", nullable = false)
+    private long lineCount;
+
+    @Column(name = "sub_total", nullable = false)
+    private double subTotal;
+
+    @Column(nullable = false)
+    private double amount;
+
+    @Column(name = "discount_amount", nullable = false)
+    private double discountAmount;
+
+    @Column(name = "net_payable", nullable = false)
+    private double netPayable;
+}
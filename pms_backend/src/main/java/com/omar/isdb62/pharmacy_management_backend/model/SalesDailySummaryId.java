@@ -0,0 +1,26 @@
+package com.omar.isdb62.pharmacy_management_backend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@EqualsAndHashCode
+@Embeddable
+public class SalesDailySummaryId implements Serializable {
+
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate summaryDate;
+
+    @Column(name = "category", nullable = false)
+    private String category;
+
+    @Column(name = "item_name", nullable = false)
+    private String itemName;
+}
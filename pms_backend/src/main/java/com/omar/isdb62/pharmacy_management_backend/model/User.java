@@ -19,7 +19,8 @@ import java.time.LocalDateTime;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pms_users_seq")
+    @SequenceGenerator(name = "pms_users_seq", sequenceName = "pms_users_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -0,0 +1,52 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+// Idempotency-Key of each checkout with a fingerprint of its request and the
+// invoice it created (see V9 migration). Rows are only useful until clients
+// stop retrying, old ones are deleted.
+@Repository
+public class IdempotencyKeyRepository {
+
+    // A second insert of a key that is not committed yet waits for the first
+    // transaction, then does nothing if it committed or inserts if it rolled back
+    private static final String CLAIM_SQL =
+            "INSERT INTO invoice_idempotency_key (idempotency_key, fingerprint, created_at) " +
+            "VALUES (?, ?, now()) ON CONFLICT (idempotency_key) DO NOTHING";
+
+    public record StoredCheckout(byte[] fingerprint, String invoiceNumber) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // True if the key is new and now belongs to the caller's transaction
+    public boolean claim(String key, byte[] fingerprint) {
+        return jdbcTemplate.update(CLAIM_SQL, key, fingerprint) == 1;
+    }
+
+    public Optional<StoredCheckout> find(String key) {
+        return jdbcTemplate.query(
+                "SELECT fingerprint, invoice_number FROM invoice_idempotency_key WHERE idempotency_key = ?",
+                (rs, rowNum) -> new StoredCheckout(rs.getBytes("fingerprint"), rs.getString("invoice_number")),
+                key).stream().findFirst();
+    }
+
+    public void complete(String key, String invoiceNumber) {
+        jdbcTemplate.update("UPDATE invoice_idempotency_key SET invoice_number = ? WHERE idempotency_key = ?",
+                invoiceNumber, key);
+    }
+
+    public int deleteCreatedBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM invoice_idempotency_key WHERE created_at < ?",
+                Timestamp.from(cutoff));
+    }
+}
@@ -1,7 +1,11 @@
 package com.omar.isdb62.pharmacy_management_backend.repository;
 
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryListItem;
 import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -25,4 +29,23 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
 
     List<Inventory> findByQuantityGreaterThanEqual(int threshold);
 
+    List<Inventory> findByRowVersionGreaterThanEqualOrderByRowVersion(Long rowVersion);
+
+    // Keyset pages over the (item_name, id) index: each page seeks straight to
+    // the cursor, so page 1000 costs the same as page 1
+    @Query("""
+            select new com.omar.isdb62.pharmacy_management_backend.dto.InventoryListItem(
+                i.id, i.itemName, i.companyName, i.category, i.generic, i.quantity, i.unitPrice)
+            from Inventory i
+            order by i.itemName, i.id""")
+    List<InventoryListItem> findFirstListPage(Limit limit);
+
+    @Query("""
+            select new com.omar.isdb62.pharmacy_management_backend.dto.InventoryListItem(
+                i.id, i.itemName, i.companyName, i.category, i.generic, i.quantity, i.unitPrice)
+            from Inventory i
+            where (i.itemName, i.id) > (:itemName, :id)
+            order by i.itemName, i.id""")
+    List<InventoryListItem> findListPageAfter(@Param("itemName") String itemName, @Param("id") Long id, Limit limit);
+
 }
@@ -0,0 +1,179 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Set-based stock updates that Spring Data derived queries cannot express
+@Repository
+public class InventoryStockRepository {
+
+    private static final String DECREMENT_SQL =
+            "UPDATE flutter_inventory SET quantity = quantity - ?, version = version + 1, " +
+            "row_version = " + InventorySyncRepository.CURRENT_VERSION_SQL + ", last_modified = now() " +
+            "WHERE item_name = ? AND category = ? AND quantity >= ?";
+
+    // Returned by the driver for every row DECREMENT_SQL updated (RETURNING)
+    private static final String[] DECREMENT_RETURNING = {"quantity", "version"};
+
+    private static final String COLUMNS =
+            "id, company, item_name, category, generic, quantity, unit_price, purchase_discount, " +
+            "net_purchase_price, sell_price, total_inventory_value, received_date, row_version, " +
+            "last_modified, reorder_level, version";
+
+    // Both arrays are zipped back into (item_name, category) pairs
+    private static final String FIND_BY_KEYS_SQL =
+            "SELECT " + COLUMNS + " FROM flutter_inventory " +
+            "WHERE (item_name, category) IN (SELECT * FROM unnest(?::varchar[], ?::varchar[]))";
+
+    // Same rules as InventoryService.receiveMedicine: stock adds up, prices
+    // and the received date are replaced, a reorder level is only replaced when given.
+    // The id comes from the entity's sequence: nextval is the top of a pooled
+    // block nobody else will use, so it cannot collide with Hibernate's ids.
+    private static final String RECEIVE_SQL =
+            "INSERT INTO flutter_inventory (id, company, item_name, category, generic, quantity, unit_price, " +
+            "purchase_discount, net_purchase_price, sell_price, total_inventory_value, received_date, " +
+            "reorder_level, row_version, last_modified) " +
+            "VALUES (nextval('flutter_inventory_seq'), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+            InventorySyncRepository.CURRENT_VERSION_SQL + ", now()) " +
+            "ON CONFLICT (item_name, category) DO UPDATE SET " +
+            "quantity = flutter_inventory.quantity + EXCLUDED.quantity, " +
+            "unit_price = EXCLUDED.unit_price, " +
+            "purchase_discount = EXCLUDED.purchase_discount, " +
+            "net_purchase_price = EXCLUDED.net_purchase_price, " +
+            "sell_price = EXCLUDED.sell_price, " +
+            "received_date = EXCLUDED.received_date, " +
+            "reorder_level = coalesce(EXCLUDED.reorder_level, flutter_inventory.reorder_level), " +
+            "row_version = EXCLUDED.row_version, " +
+            "last_modified = EXCLUDED.last_modified, " +
+            "version = flutter_inventory.version + 1";
+
+    private static final Comparator<InvoiceHistory> LOCK_ORDER = Comparator
+            .comparing(InvoiceHistory::getItemName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(InvoiceHistory::getCategory, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private static final RowMapper<Inventory> INVENTORY_MAPPER = (rs, rowNum) -> {
+        Inventory inventory = new Inventory();
+        inventory.setId(rs.getLong("id"));
+        inventory.setCompanyName(rs.getString("company"));
+        inventory.setItemName(rs.getString("item_name"));
+        inventory.setCategory(rs.getString("category"));
+        inventory.setGeneric(rs.getString("generic"));
+        inventory.setQuantity(rs.getInt("quantity"));
+        inventory.setUnitPrice(rs.getBigDecimal("unit_price"));
+        inventory.setPurchaseDiscount(rs.getBigDecimal("purchase_discount"));
+        inventory.setNetPurchasePrice(rs.getBigDecimal("net_purchase_price"));
+        inventory.setSellPrice(rs.getBigDecimal("sell_price"));
+        inventory.setTotalInventoryValue(rs.getBigDecimal("total_inventory_value"));
+        Date receivedDate = rs.getDate("received_date");
+        inventory.setReceivedDate(receivedDate == null ? null : receivedDate.toLocalDate());
+        inventory.setRowVersion(rs.getObject("row_version", Long.class));
+        Timestamp lastModified = rs.getTimestamp("last_modified");
+        inventory.setLastModified(lastModified == null ? null : lastModified.toLocalDateTime());
+        inventory.setReorderLevel(rs.getObject("reorder_level", Integer.class));
+        inventory.setVersion(rs.getLong("version"));
+        return inventory;
+    };
+
+    // A row's stock right after a write. version is the row's optimistic lock
+    // version, so of two levels of one row the higher one is the newer.
+    public record StockLevel(int quantity, long version) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventoryStockRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // One conditional decrement per line, sent as a single batch. Entry i is
+    // the row's stock after line i, or null when line i was short (or the item
+    // does not exist). Rows are updated in key order, not cart order, so two
+    // checkouts of the same items lock them in the same order instead of deadlocking.
+    public StockLevel[] decrementStock(List<InvoiceHistory> lines) {
+        if (lines.isEmpty()) {
+            return new StockLevel[0];
+        }
+        Integer[] order = new Integer[lines.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing((Integer i) -> lines.get(i), LOCK_ORDER));
+
+        return jdbcTemplate.execute((ConnectionCallback<StockLevel[]>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(DECREMENT_SQL, DECREMENT_RETURNING)) {
+                for (Integer i : order) {
+                    InvoiceHistory line = lines.get(i);
+                    ps.setInt(1, line.getQuantity());
+                    ps.setString(2, line.getItemName());
+                    ps.setString(3, line.getCategory());
+                    ps.setInt(4, line.getQuantity());
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+
+                // One returned row per updated line, in batch order
+                StockLevel[] levels = new StockLevel[lines.size()];
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    for (int k = 0; k < order.length; k++) {
+                        if (counts[k] > 0 && rs.next()) {
+                            levels[order[k]] = new StockLevel(rs.getInt("quantity"), rs.getLong("version"));
+                        }
+                    }
+                }
+                return levels;
+            }
+        });
+    }
+
+    // Current rows for many (item name, category) keys in one query
+    public List<Inventory> findByKeys(List<String> itemNames, List<String> categories) {
+        if (itemNames.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(FIND_BY_KEYS_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("varchar", itemNames.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("varchar", categories.toArray()));
+        }, INVENTORY_MAPPER);
+    }
+
+    // One upsert per line, sent as a single batch
+    public void receive(List<Inventory> lines, LocalDate receivedDate) {
+        jdbcTemplate.batchUpdate(RECEIVE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setString(1, line.getCompanyName());
+            ps.setString(2, line.getItemName());
+            ps.setString(3, line.getCategory());
+            ps.setString(4, line.getGeneric());
+            ps.setInt(5, line.getQuantity());
+            ps.setBigDecimal(6, line.getUnitPrice());
+            ps.setBigDecimal(7, line.getPurchaseDiscount());
+            ps.setBigDecimal(8, line.getNetPurchasePrice());
+            ps.setBigDecimal(9, line.getSellPrice());
+            ps.setBigDecimal(10, line.getTotalInventoryValue());
+            ps.setObject(11, receivedDate);
+            if (line.getReorderLevel() != null) {
+                ps.setInt(12, line.getReorderLevel());
+            } else {
+                ps.setNull(12, Types.INTEGER);
+            }
+        });
+    }
+
+    public int availableQuantity(String itemName, String category) {
+        List<Integer> quantity = jdbcTemplate.queryForList(
+                "SELECT quantity FROM flutter_inventory WHERE item_name = ? AND category = ?",
+                Integer.class, itemName, category);
+        return quantity.isEmpty() ? 0 : quantity.get(0);
+    }
+}
@@ -0,0 +1,33 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Row versions for the client delta sync. A row's version is the id of the
+// transaction that last wrote it. Ids are handed out in increasing order but
+// transactions commit in any order, so a sync cursor is not the highest
+// version seen, it is the oldest transaction still running when the sync read
+// started (watermark). Everything below it has committed and been sent.
+@Repository
+public class InventorySyncRepository {
+
+    // Shared with the JDBC write paths so every writer stamps the same way
+    public static final String CURRENT_VERSION_SQL = "pg_current_xact_id()::text::bigint";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InventorySyncRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Must be called inside the writing transaction
+    public long currentTransactionVersion() {
+        return jdbcTemplate.queryForObject("SELECT " + CURRENT_VERSION_SQL, Long.class);
+    }
+
+    // Read before the changed rows, in the same request
+    public long watermark() {
+        return jdbcTemplate.queryForObject(
+                "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", Long.class);
+    }
+}
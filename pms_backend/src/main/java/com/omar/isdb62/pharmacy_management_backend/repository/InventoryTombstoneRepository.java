@@ -0,0 +1,13 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InventoryTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface InventoryTombstoneRepository extends JpaRepository<InventoryTombstone, Long> {
+
+    List<InventoryTombstone> findByRowVersionGreaterThanEqualOrderByRowVersion(Long rowVersion);
+}
@@ -1,23 +1,28 @@
 package com.omar.isdb62.pharmacy_management_backend.repository;
 
+import com.omar.isdb62.pharmacy_management_backend.model.Invoice;
 import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
+// Lines are read with their header, it carries the invoice number and customer
 @Repository
 
 public interface InvoiceHistoryRepository extends JpaRepository<InvoiceHistory, Long> {
 
-    // Find invoice by its invoice number
-//    Optional<InvoiceHistory> findByInvoiceNumber(String invoiceNumber);
-    List<InvoiceHistory> findByInvoiceNumber(String invoiceNumber);
+    @Override
+    @EntityGraph(attributePaths = "invoice")
+    List<InvoiceHistory> findAll();
 
-    // Count how many invoices start with a specific prefix (used for generating new invoice number)
-    int countByInvoiceNumberStartingWith(String prefix);
+    // Lines of an invoice dated on or after the given day (the header's date),
+    // only scans the partitions from that month on
+    @EntityGraph(attributePaths = "invoice")
+    List<InvoiceHistory> findByInvoiceAndDateGreaterThanEqualOrderById(Invoice invoice, LocalDate date);
 
+    @EntityGraph(attributePaths = "invoice")
     List<InvoiceHistory> findByDate(LocalDate date);
 }
@@ -0,0 +1,47 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+@Repository
+public class InvoiceNumberCounterRepository {
+
+    // Seeds a new day from numbers already issued (e.g. by the old count based
+    // generator). The NOT EXISTS is a one-time filter, so the invoice table is
+    // only read for the first block of a day.
+    private static final String SEED_SQL =
+            "INSERT INTO invoice_number_counter (day, last_value) " +
+            "SELECT ?, coalesce(max(cast(substring(invoice_number from 14) as integer)), 0) " +
+            "FROM flutter_invoice WHERE invoice_number LIKE ? " +
+            "AND NOT EXISTS (SELECT 1 FROM invoice_number_counter WHERE day = ?) " +
+            "ON CONFLICT (day) DO NOTHING";
+
+    private static final String RESERVE_SQL =
+            "UPDATE invoice_number_counter SET last_value = last_value + ? WHERE day = ? RETURNING last_value";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    public InvoiceNumberCounterRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Reserves the next blockSize numbers of the day and returns the highest one.
+    // Runs in its own short transaction so the counter row is never held locked
+    // for the length of a checkout.
+    public long reserveBlock(LocalDate day, int blockSize) {
+        String prefix = "INV-" + day.format(DateTimeFormatter.BASIC_ISO_DATE) + "-";
+        return requiresNew.execute(status -> {
+            jdbcTemplate.update(SEED_SQL, day, prefix + "%", day);
+            return jdbcTemplate.queryForObject(RESERVE_SQL, Long.class, blockSize, day);
+        });
+    }
+}
@@ -0,0 +1,104 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Monthly partitions of flutter_invoice_history (see V6 migration), one table
+// per month named flutter_invoice_history_yyyy_mm
+@Repository
+public class InvoicePartitionRepository {
+
+    public static final String PARENT = "flutter_invoice_history";
+    private static final String PREFIX = PARENT + "_";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final RowMapper<InvoiceHistory> INVOICE_MAPPER = (rs, rowNum) -> {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setId(rs.getLong("id"));
+        line.setInvoiceNumber(rs.getString("invoice_number"));
+        line.setCustomerName(rs.getString("customer_name"));
+        line.setContactNumber(rs.getString("contact_number"));
+        line.setItemName(rs.getString("item_name"));
+        line.setCategory(rs.getString("category"));
+        line.setQuantity(rs.getInt("quantity"));
+        line.setUnitPrice(rs.getDouble("unit_price"));
+        line.setSubTotal(rs.getDouble("sub_total"));
+        line.setAmount(rs.getDouble("amount"));
+        line.setDiscount(rs.getDouble("discount"));
+        line.setDiscountAmount(rs.getDouble("discount_amount"));
+        line.setNetPayable(rs.getDouble("net_payable"));
+        line.setDate(rs.getDate("date").toLocalDate());
+        return line;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InvoicePartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PREFIX + month.format(SUFFIX);
+    }
+
+    // Months currently attached, oldest first
+    public List<YearMonth> attachedMonths() {
+        List<String> names = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = '" + PARENT + "'::regclass ORDER BY c.relname", String.class);
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : names) {
+            if (name.startsWith(PREFIX)) {
+                try {
+                    months.add(YearMonth.parse(name.substring(PREFIX.length()), SUFFIX));
+                } catch (DateTimeParseException ex) {
+                    // Not one of ours
+                }
+            }
+        }
+        return months;
+    }
+
+    public void createMonth(YearMonth month) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partitionName(month) +
+                " PARTITION OF " + PARENT +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    // The month's rows leave the invoice history but stay in their own table.
+    // CONCURRENTLY only waits for running queries instead of blocking new
+    // ones, and cannot run inside a transaction.
+    public void detachMonth(YearMonth month) {
+        jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + partitionName(month) + " CONCURRENTLY");
+    }
+
+    // Every line of the month with its header fields. Inside a transaction the month is first locked
+    // against writes, so nothing changes until it commits.
+    public List<InvoiceHistory> lockAndReadMonth(YearMonth month) {
+        jdbcTemplate.execute("LOCK TABLE " + partitionName(month) + " IN SHARE MODE");
+        return jdbcTemplate.query("SELECT l.*, f.invoice_number, f.customer_name, f.contact_number, f.discount " +
+                "FROM " + partitionName(month) + " l LEFT JOIN flutter_invoice f ON f.id = l.invoice_id", INVOICE_MAPPER);
+    }
+
+    // Detaches and drops the month in the caller's transaction. The plain
+    // DETACH blocks the invoice history until commit, so it gives up instead
+    // of queueing behind a long query.
+    public void dropMonth(YearMonth month) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '10s'");
+        jdbcTemplate.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + partitionName(month));
+        jdbcTemplate.execute("DROP TABLE " + partitionName(month));
+    }
+
+    public boolean tableExists(YearMonth month) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, partitionName(month)));
+    }
+}
@@ -0,0 +1,20 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.model.Invoice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+
+    Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
+
+    // Newest first, headers only
+    List<Invoice> findAllByOrderByDateDescIdDesc();
+
+    List<Invoice> findByDateBetweenOrderByDateDescIdDesc(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,38 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.SalesDayTotals;
+import com.omar.isdb62.pharmacy_management_backend.dto.SalesItemTotals;
+import com.omar.isdb62.pharmacy_management_backend.model.SalesDailySummary;
+import com.omar.isdb62.pharmacy_management_backend.model.SalesDailySummaryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface SalesDailySummaryRepository extends JpaRepository<SalesDailySummary, SalesDailySummaryId>,
+        SalesDailySummaryRepositoryCustom {
+
+    @Query("""
+            select new com.omar.isdb62.pharmacy_management_backend.dto.SalesDayTotals(
+                s.id.summaryDate, sum(s.quantity), sum(s.lineCount), sum(s.subTotal),
+                sum(s.amount), sum(s.discountAmount), sum(s.netPayable))
+            from SalesDailySummary s
+            where s.id.summaryDate between :from and :to
+            group by s.id.summaryDate
+            order by s.id.summaryDate""")
+    List<SalesDayTotals> findDayTotals(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("""
+            select new com.omar.isdb62.pharmacy_management_backend.dto.SalesItemTotals(
+                s.id.category, s.id.itemName, sum(s.quantity), sum(s.lineCount), sum(s.subTotal),
+                sum(s.amount), sum(s.discountAmount), sum(s.netPayable))
+            from SalesDailySummary s
+            where s.id.summaryDate between :from and :to
+            group by s.id.category, s.id.itemName
+            order by sum(s.netPayable) desc""")
+    List<SalesItemTotals> findItemTotals(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
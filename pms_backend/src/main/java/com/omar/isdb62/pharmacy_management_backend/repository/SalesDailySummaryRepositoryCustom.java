@@ -0,0 +1,14 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+
+import java.util.List;
+
+public interface SalesDailySummaryRepositoryCustom {
+
+    // Adds (sign = 1) or removes (sign = -1) the invoice lines from the rollup in one batch
+    void applyLines(List<InvoiceHistory> lines, int sign);
+
+    // Recomputes the whole rollup from flutter_invoice_history
+    void rebuild();
+}
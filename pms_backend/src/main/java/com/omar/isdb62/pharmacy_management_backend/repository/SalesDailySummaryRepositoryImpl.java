@@ -0,0 +1,63 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.List;
+
+class SalesDailySummaryRepositoryImpl implements SalesDailySummaryRepositoryCustom {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO sales_daily_summary (summary_date, category, item_name, quantity, line_count, " +
+            "sub_total, amount, discount_amount, net_payable) " +
+            "VALUES (?, coalesce(?, ''), coalesce(?, ''), ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (summary_date, category, item_name) DO UPDATE SET " +
+            "quantity = sales_daily_summary.quantity + EXCLUDED.quantity, " +
+            "line_count = sales_daily_summary.line_count + EXCLUDED.line_count, " +
+            "sub_total = sales_daily_summary.sub_total + EXCLUDED.sub_total, " +
+            "amount = sales_daily_summary.amount + EXCLUDED.amount, " +
+            "discount_amount = sales_daily_summary.discount_amount + EXCLUDED.discount_amount, " +
+            "net_payable = sales_daily_summary.net_payable + EXCLUDED.net_payable";
+
+    private static final String REBUILD_SQL =
+            "INSERT INTO sales_daily_summary (summary_date, category, item_name, quantity, line_count, " +
+            "sub_total, amount, discount_amount, net_payable) " +
+            "SELECT date, coalesce(category, ''), coalesce(item_name, ''), sum(quantity), count(*), " +
+            "sum(sub_total), sum(amount), sum(discount_amount), sum(net_payable) " +
+            "FROM flutter_invoice_history WHERE date IS NOT NULL " +
+            "GROUP BY date, coalesce(category, ''), coalesce(item_name, '')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    SalesDailySummaryRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void applyLines(List<InvoiceHistory> lines, int sign) {
+        List<InvoiceHistory> dated = lines.stream().filter(l -> l.getDate() != null).toList();
+        jdbcTemplate.batchUpdate(UPSERT_SQL, dated, dated.size(), (ps, line) -> {
+            ps.setDate(1, Date.valueOf(line.getDate()));
+            ps.setString(2, line.getCategory());
+            ps.setString(3, line.getItemName());
+            ps.setLong(4, (long) sign * line.getQuantity());
+            ps.setLong(5, sign);
+            ps.setDouble(6, sign * line.getSubTotal());
+            ps.setDouble(7, sign * line.getAmount());
+            ps.setDouble(8, sign * line.getDiscountAmount());
+            ps.setDouble(9, sign * line.getNetPayable());
+        });
+        if (sign < 0) {
+            jdbcTemplate.update("DELETE FROM sales_daily_summary WHERE line_count <= 0");
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        // Blocks concurrent rollup updates until the rebuilt rows are committed
+        jdbcTemplate.execute("LOCK TABLE sales_daily_summary IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM sales_daily_summary");
+        jdbcTemplate.update(REBUILD_SQL);
+    }
+}
@@ -0,0 +1,235 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.CheckoutResult;
+import com.omar.isdb62.pharmacy_management_backend.exception.CheckoutBusyException;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+// Group commit for checkouts (app.invoice.checkout.group-commit.enabled).
+// Carts wait on a bounded queue and a single writer thread takes up to
+// max-batch of them, or whatever arrived within max-wait, into one
+// transaction, so a rush of tills pays for one commit per batch instead of
+// one per sale. Each cart runs behind its own savepoint: a cart that is
+// short (or otherwise refused) is rolled back alone and the rest commit.
+// Callers are answered only once their batch has committed.
+@Slf4j
+@Service
+public class CheckoutBatcher {
+
+    private final InvoiceHistoryService invoiceHistoryService;
+    private final IdempotentCheckoutService idempotentCheckoutService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatch;
+    private final long maxWaitNanos;
+    private final int queueCapacity;
+    private final Duration timeout;
+    private final BlockingQueue<Cart> queue;
+    private final DistributionSummary batchSizes;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    // lines is the request as received, every attempt works on a copy of it
+    private record Cart(String idempotencyKey, List<InvoiceHistory> lines, CompletableFuture<CheckoutResult> result) {
+    }
+
+    public CheckoutBatcher(InvoiceHistoryService invoiceHistoryService,
+                           IdempotentCheckoutService idempotentCheckoutService,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.invoice.checkout.group-commit.enabled:false}") boolean enabled,
+                           @Value("${app.invoice.checkout.group-commit.max-batch:32}") int maxBatch,
+                           @Value("${app.invoice.checkout.group-commit.max-wait:PT0.005S}") Duration maxWait,
+                           @Value("${app.invoice.checkout.group-commit.queue-capacity:1024}") int queueCapacity,
+                           @Value("${app.invoice.checkout.group-commit.timeout:PT30S}") Duration timeout) {
+        this.invoiceHistoryService = invoiceHistoryService;
+        this.idempotentCheckoutService = idempotentCheckoutService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queueCapacity = queueCapacity;
+        this.timeout = timeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSizes = DistributionSummary.builder("invoice.checkout.batch.size")
+                .description("Carts committed together by the group commit writer")
+                .register(meterRegistry);
+        Gauge.builder("invoice.checkout.queue", queue, BlockingQueue::size)
+                .description("Carts waiting for the group commit writer")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform().name("checkout-writer").daemon().start(this::drain);
+        log.info("Group commit checkout enabled: up to {} carts or {} us per batch",
+                maxBatch, TimeUnit.NANOSECONDS.toMicros(maxWaitNanos));
+    }
+
+    // Carts already queued are still written
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(timeout.toMillis());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Blocks until the cart's batch has committed. Throws what the checkout
+    // would have thrown on its own (InsufficientStockException, ...).
+    public CheckoutResult checkout(String idempotencyKey, List<InvoiceHistory> invoices) {
+        CompletableFuture<CheckoutResult> result = submit(idempotencyKey, invoices);
+        try {
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // The cart may still be written, a retry with the same Idempotency-Key is safe
+            throw new CheckoutBusyException("Checkout did not finish within " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckoutBusyException("Interrupted while waiting for checkout");
+        }
+    }
+
+    public CompletableFuture<CheckoutResult> submit(String idempotencyKey, List<InvoiceHistory> invoices) {
+        Cart cart = new Cart(idempotencyKey, List.copyOf(invoices), new CompletableFuture<>());
+        if (!running || !queue.offer(cart)) {
+            throw new CheckoutBusyException("Checkout queue is full (" + queueCapacity + " carts waiting), try again");
+        }
+        return cart.result();
+    }
+
+    private void drain() {
+        List<Cart> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Cart first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    Cart next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Group commit writer failed a batch", e);
+                batch.forEach(cart -> cart.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+        for (Cart cart; (cart = queue.poll()) != null; ) {
+            cart.result().completeExceptionally(new CheckoutBusyException("Checkout is shutting down"));
+        }
+    }
+
+    private void write(List<Cart> batch) {
+        batchSizes.record(batch.size());
+        // Numbers are taken before the batch transaction, a refill needs its own connection
+        Map<Cart, String> invoiceNumbers = new HashMap<>();
+        for (Cart cart : batch) {
+            invoiceNumbers.put(cart, invoiceHistoryService.generateInvoiceNumber());
+        }
+        Map<Cart, CheckoutResult> written = new LinkedHashMap<>();
+        Map<Cart, RuntimeException> refused = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Cart cart : batch) {
+                    Object savepoint = status.createSavepoint();
+                    try {
+                        written.put(cart, checkout(cart, invoiceNumbers.get(cart)));
+                        // Pending inserts must not outlive the cart's savepoint
+                        entityManager.flush();
+                        status.releaseSavepoint(savepoint);
+                    } catch (DataAccessException | PersistenceException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        // Refusals (short stock, bad quantity, reused key) happen
+                        // before anything is persisted, only JDBC work is undone
+                        status.rollbackToSavepoint(savepoint);
+                        refused.put(cart, e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // A database error may leave the persistence context out of step
+            // with the savepoint, so the batch is dropped and each cart is
+            // checked out on its own as if group commit were off
+            log.warn("Group commit batch of {} failed, checking the carts out one by one", batch.size(), e);
+            batch.forEach(this::checkoutAlone);
+            return;
+        }
+        written.forEach((cart, result) -> cart.result().complete(result));
+        refused.forEach((cart, e) -> cart.result().completeExceptionally(e));
+    }
+
+    private void checkoutAlone(Cart cart) {
+        try {
+            cart.result().complete(checkout(cart, null));
+        } catch (RuntimeException e) {
+            cart.result().completeExceptionally(e);
+        }
+    }
+
+    // Inside a batch (with its invoice number) this runs in the batch
+    // transaction, on its own (checkoutAlone) in a transaction of its own
+    // with conflict retries
+    private CheckoutResult checkout(Cart cart, String invoiceNumber) {
+        if (invoiceNumber == null) {
+            // createInvoices copies the lines for each of its attempts
+            return cart.idempotencyKey() == null
+                    ? new CheckoutResult(invoiceHistoryService.createInvoices(cart.lines()), false)
+                    : idempotentCheckoutService.createInvoices(cart.idempotencyKey(), cart.lines());
+        }
+        List<InvoiceHistory> lines = InvoiceHistoryService.copyOf(cart.lines());
+        return cart.idempotencyKey() == null
+                ? new CheckoutResult(invoiceHistoryService.checkout(lines, invoiceNumber), false)
+                : idempotentCheckoutService.checkout(cart.idempotencyKey(), lines, invoiceNumber);
+    }
+}
@@ -0,0 +1,139 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.omar.isdb62.pharmacy_management_backend.configaration.RetryOnConflict;
+import com.omar.isdb62.pharmacy_management_backend.dto.CheckoutResult;
+import com.omar.isdb62.pharmacy_management_backend.exception.IdempotencyKeyReusedException;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.IdempotencyKeyRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.IdempotencyKeyRepository.StoredCheckout;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+// Checkout behind an Idempotency-Key. The key is claimed in the checkout's
+// own transaction, so a duplicate arriving while the first attempt runs
+// waits for it and then returns its invoice; if the first attempt failed
+// (e.g. short stock) nothing was kept and the duplicate checks out itself.
+// Keys seen recently are answered from memory without touching the key table.
+@Slf4j
+@Service
+public class IdempotentCheckoutService {
+
+    private final InvoiceHistoryService invoiceHistoryService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Cache<String, StoredCheckout> completed;
+    // This bean through its proxy, for conflict retries around each attempt
+    private final IdempotentCheckoutService self;
+
+    public IdempotentCheckoutService(@Lazy IdempotentCheckoutService self,
+                                     InvoiceHistoryService invoiceHistoryService,
+                                     IdempotencyKeyRepository idempotencyKeyRepository,
+                                     ObjectMapper objectMapper,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.invoice.idempotency.ttl:PT24H}") Duration ttl,
+                                     @Value("${app.invoice.idempotency.cache-size:10000}") long cacheSize) {
+        this.self = self;
+        this.invoiceHistoryService = invoiceHistoryService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // The request is fingerprinted once, as the client sent it, before any
+    // attempt fills in the lines
+    public CheckoutResult createInvoices(String idempotencyKey, List<InvoiceHistory> invoices) {
+        return self.createInvoices(idempotencyKey, fingerprint(invoices), invoices);
+    }
+
+    // One attempt on fresh copies of the lines. The invoice number is taken
+    // before the transaction opens, a replay leaves it unused.
+    @RetryOnConflict
+    public CheckoutResult createInvoices(String idempotencyKey, byte[] fingerprint, List<InvoiceHistory> invoices) {
+        String invoiceNumber = invoiceHistoryService.generateInvoiceNumber();
+        List<InvoiceHistory> lines = InvoiceHistoryService.copyOf(invoices);
+        return transactionTemplate.execute(status -> checkout(idempotencyKey, fingerprint, lines, invoiceNumber));
+    }
+
+    // In the caller's transaction, see InvoiceHistoryService.checkout
+    public CheckoutResult checkout(String idempotencyKey, List<InvoiceHistory> invoices, String invoiceNumber) {
+        return checkout(idempotencyKey, fingerprint(invoices), invoices, invoiceNumber);
+    }
+
+    private CheckoutResult checkout(String idempotencyKey, byte[] fingerprint, List<InvoiceHistory> invoices,
+                                    String invoiceNumber) {
+        StoredCheckout known = completed.getIfPresent(idempotencyKey);
+        if (known != null) {
+            return replay(idempotencyKey, known, fingerprint);
+        }
+        if (!idempotencyKeyRepository.claim(idempotencyKey, fingerprint)) {
+            StoredCheckout stored = idempotencyKeyRepository.find(idempotencyKey)
+                    .orElseThrow(() -> new RuntimeException("Idempotency-Key " + idempotencyKey + " expired while in use"));
+            completed.put(idempotencyKey, stored);
+            return replay(idempotencyKey, stored, fingerprint);
+        }
+
+        List<InvoiceHistory> saved = invoiceHistoryService.checkout(invoices, invoiceNumber);
+        String savedNumber = saved.isEmpty() ? null : saved.get(0).getInvoiceNumber();
+        idempotencyKeyRepository.complete(idempotencyKey, savedNumber);
+
+        StoredCheckout stored = new StoredCheckout(fingerprint, savedNumber);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                completed.put(idempotencyKey, stored);
+            }
+        });
+        return new CheckoutResult(saved, false);
+    }
+
+    @Scheduled(cron = "${app.invoice.idempotency.cleanup-cron:0 */10 * * * *}")
+    public void deleteExpired() {
+        int deleted = idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+        if (deleted > 0) {
+            log.debug("Deleted {} expired idempotency key(s)", deleted);
+        }
+    }
+
+    private CheckoutResult replay(String idempotencyKey, StoredCheckout stored, byte[] fingerprint) {
+        if (!Arrays.equals(stored.fingerprint(), fingerprint)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        if (stored.invoiceNumber() == null) {
+            return new CheckoutResult(List.of(), true);
+        }
+        return new CheckoutResult(invoiceHistoryService.getByInvoiceNumber(stored.invoiceNumber()), true);
+    }
+
+    private byte[] fingerprint(List<InvoiceHistory> invoices) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(invoices));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not fingerprint checkout request", e);
+        }
+    }
+}
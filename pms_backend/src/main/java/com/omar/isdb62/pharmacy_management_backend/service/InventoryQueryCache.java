@@ -0,0 +1,132 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Results of the inventory list and search queries, keyed by query. The
+// catalog only changes through InventoryChangedEvent (receive, update,
+// delete, sale), and each change drops just the entries that can contain the
+// changed item.
+@Component
+public class InventoryQueryCache {
+
+    public static final String ALL = "all";
+    private static final String SEARCH_PREFIX = "search:";
+
+    // After InventorySearchIndex: a search that starts once its entries are
+    // dropped must already read the changed index, or it stores stale rows
+    public static final int EVENT_ORDER = InventorySearchIndex.EVENT_ORDER + 10;
+
+    // Every item is in "all"
+    private static final List<String> CATALOG_KEYS = List.of(ALL);
+
+    private final Cache<String, List<Inventory>> cache;
+    private final Counter invalidations;
+
+    // A load that started before a change must not be stored after it: loads
+    // remember the generation they started in and only store if it is unchanged
+    private final AtomicLong generation = new AtomicLong();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public InventoryQueryCache(@Value("${app.inventory.cache.max-entries:500}") long maxEntries,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "inventory.queries");
+        this.invalidations = Counter.builder("inventory.queries.invalidations")
+                .description("Cached inventory queries dropped because an item changed")
+                .register(meterRegistry);
+    }
+
+    public static String searchKey(String query) {
+        return SEARCH_PREFIX + normalize(query);
+    }
+
+    // The returned list is shared and must not be modified
+    public List<Inventory> get(String key, Supplier<List<Inventory>> loader) {
+        List<Inventory> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long startedIn = generation.get();
+        List<Inventory> loaded = List.copyOf(loader.get());
+        lock.readLock().lock();
+        try {
+            if (generation.get() == startedIn) {
+                cache.put(key, loaded);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return loaded;
+    }
+
+    @Order(EVENT_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            List<String> affected = new ArrayList<>(CATALOG_KEYS);
+            for (Map.Entry<String, List<Inventory>> entry : cache.asMap().entrySet()) {
+                if (entry.getKey().startsWith(SEARCH_PREFIX) && affects(event, entry.getKey(), entry.getValue())) {
+                    affected.add(entry.getKey());
+                }
+            }
+            cache.invalidateAll(affected);
+            invalidations.increment(affected.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    // A search result changes if it lists the item, or if the written item now
+    // matches the query (new item, or renamed into the result)
+    private static boolean affects(InventoryChangedEvent event, String key, List<Inventory> rows) {
+        for (Inventory row : rows) {
+            if (row.getItemName().equals(event.getItemName()) && row.getCategory().equals(event.getCategory())) {
+                return true;
+            }
+            if (event.getInventory() != null && row.getId().equals(event.getInventory().getId())) {
+                return true;
+            }
+        }
+        if (event.getType() != InventoryChangedEvent.Type.UPSERTED) {
+            return false;
+        }
+        String query = key.substring(SEARCH_PREFIX.length());
+        Inventory written = event.getInventory();
+        return normalize(written.getItemName()).contains(query)
+                || normalize(written.getGeneric()).contains(query)
+                || normalize(written.getCompanyName()).contains(query);
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
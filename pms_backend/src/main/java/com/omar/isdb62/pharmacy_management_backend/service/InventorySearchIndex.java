@@ -0,0 +1,248 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory n-gram index over item name, generic and company used by the
+// search typeahead. Every 1..3 character gram of each field points at the rows
+// containing it, so a query only touches the rows sharing its grams.
+@Slf4j
+@Component
+public class InventorySearchIndex {
+
+    // Applies a change before InventoryQueryCache drops the searches it serves
+    public static final int EVENT_ORDER = 0;
+
+    private static final int MAX_GRAM = 3;
+
+    // Ranks, lower is better
+    private static final int RANK_EXACT_NAME = 0;
+    private static final int RANK_NAME_PREFIX = 1;
+    private static final int RANK_NAME_WORD_PREFIX = 2;
+    private static final int RANK_NAME_CONTAINS = 3;
+    private static final int RANK_GENERIC = 4;
+    private static final int RANK_COMPANY = 5;
+
+    private final InventoryRepository inventoryRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final Map<String, Long> idsByKey = new HashMap<>();
+
+    public InventorySearchIndex(InventoryRepository inventoryRepository) {
+        this.inventoryRepository = inventoryRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Inventory> all = inventoryRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+            idsByKey.clear();
+            for (Inventory inventory : all) {
+                add(InventoryChangedEvent.copyOf(inventory));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Inventory search index loaded with {} items", all.size());
+    }
+
+    @Order(EVENT_ORDER)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.getType() == InventoryChangedEvent.Type.STOCK_ADJUSTED) {
+                adjust(event);
+                return;
+            }
+            Inventory inventory = event.getInventory();
+            Entry held = entries.get(inventory.getId());
+            // A later write of the row was applied first
+            if (held != null && event.getType() == InventoryChangedEvent.Type.UPSERTED
+                    && event.isOlderThan(held.inventory())) {
+                return;
+            }
+            remove(inventory.getId());
+            if (event.getType() == InventoryChangedEvent.Type.UPSERTED) {
+                add(inventory);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns the matching rows, best match first. The returned objects are
+    // shared with the index and must not be modified.
+    public List<Inventory> search(String query) {
+        String q = normalize(query);
+
+        lock.readLock().lock();
+        try {
+            Collection<Long> candidates = q.isEmpty() ? entries.keySet() : candidates(q);
+
+            List<Match> matches = new ArrayList<>(candidates.size());
+            for (Long id : candidates) {
+                Entry entry = entries.get(id);
+                int rank = rank(entry, q);
+                if (rank >= 0) {
+                    matches.add(new Match(entry, rank));
+                }
+            }
+            matches.sort(Comparator.comparingInt(Match::rank)
+                    .thenComparing(m -> m.entry().name())
+                    .thenComparing(m -> m.entry().inventory().getId()));
+
+            List<Inventory> result = new ArrayList<>(matches.size());
+            for (Match match : matches) {
+                result.add(match.entry().inventory());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Short queries are grams themselves; longer ones intersect their trigrams,
+    // smallest posting list first. False positives are dropped by rank().
+    private Collection<Long> candidates(String q) {
+        if (q.length() <= MAX_GRAM) {
+            return postings.getOrDefault(q, Collections.emptySet());
+        }
+
+        List<Set<Long>> lists = new ArrayList<>();
+        for (int i = 0; i + MAX_GRAM <= q.length(); i++) {
+            Set<Long> ids = postings.get(q.substring(i, i + MAX_GRAM));
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private int rank(Entry entry, String q) {
+        if (q.isEmpty()) {
+            return RANK_NAME_CONTAINS;
+        }
+        String name = entry.name();
+        if (name.equals(q)) {
+            return RANK_EXACT_NAME;
+        }
+        if (name.startsWith(q)) {
+            return RANK_NAME_PREFIX;
+        }
+        int at = name.indexOf(q);
+        if (at > 0) {
+            return Character.isLetterOrDigit(name.charAt(at - 1)) ? RANK_NAME_CONTAINS : RANK_NAME_WORD_PREFIX;
+        }
+        if (entry.generic().contains(q)) {
+            return RANK_GENERIC;
+        }
+        if (entry.company().contains(q)) {
+            return RANK_COMPANY;
+        }
+        return -1;
+    }
+
+    // Only the quantity changes, so the grams stay as they are
+    private void adjust(InventoryChangedEvent event) {
+        Long id = idsByKey.get(key(event.getItemName(), event.getCategory()));
+        Entry entry = id == null ? null : entries.get(id);
+        if (entry == null || event.isOlderThan(entry.inventory())) {
+            return;
+        }
+        Inventory adjusted = InventoryChangedEvent.copyOf(entry.inventory());
+        adjusted.setQuantity(event.getQuantity());
+        adjusted.setVersion(event.getVersion());
+        entries.put(id, new Entry(adjusted, entry.name(), entry.generic(), entry.company()));
+    }
+
+    private void add(Inventory inventory) {
+        Entry entry = new Entry(inventory,
+                normalize(inventory.getItemName()),
+                normalize(inventory.getGeneric()),
+                normalize(inventory.getCompanyName()));
+        entries.put(inventory.getId(), entry);
+        idsByKey.put(key(inventory.getItemName(), inventory.getCategory()), inventory.getId());
+        for (String gram : grams(entry)) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(inventory.getId());
+        }
+    }
+
+    private void remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        idsByKey.remove(key(entry.inventory().getItemName(), entry.inventory().getCategory()));
+        for (String gram : grams(entry)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> grams = new HashSet<>();
+        addGrams(entry.name(), grams);
+        addGrams(entry.generic(), grams);
+        addGrams(entry.company(), grams);
+        return grams;
+    }
+
+    private static void addGrams(String value, Set<String> grams) {
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= value.length(); i++) {
+                grams.add(value.substring(i, i + n));
+            }
+        }
+    }
+
+    private static String key(String itemName, String category) {
+        return itemName + '\u0000' + category;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(Inventory inventory, String name, String generic, String company) {
+    }
+
+    private record Match(Entry entry, int rank) {
+    }
+}
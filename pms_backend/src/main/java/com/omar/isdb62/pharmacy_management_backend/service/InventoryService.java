@@ -1,45 +1,197 @@
 package com.omar.isdb62.pharmacy_management_backend.service;
 
+import com.omar.isdb62.pharmacy_management_backend.configaration.RetryOnConflict;
+import com.omar.isdb62.pharmacy_management_backend.constants.ReceiveLineStatus;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryCatalog;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryChangesResponse;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryListItem;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryPageResponse;
+import com.omar.isdb62.pharmacy_management_backend.dto.ReceiveLineResult;
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
 import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InventoryTombstone;
 import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryStockRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventorySyncRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryTombstoneRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDate;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
 
 @Service
 public class InventoryService {
 
     private final InventoryRepository inventoryRepository;
+    private final InventoryStockRepository inventoryStockRepository;
+    private final InventorySearchIndex searchIndex;
+    private final InventoryQueryCache queryCache;
+    private final LowStockTracker lowStockTracker;
+    private final InventorySyncRepository syncRepository;
+    private final InventoryTombstoneRepository tombstoneRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // ETag of the cached catalog list, recomputed only when that list changes
+    private volatile InventoryCatalog catalog;
+
+    @Value("${app.inventory.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.inventory.max-page-size:500}")
+    private int maxPageSize;
 
     public List<Inventory> getAllInventorySortedByItemName() {
-        return inventoryRepository.findAllByOrderByItemNameAsc();
+        return queryCache.get(InventoryQueryCache.ALL, inventoryRepository::findAllByOrderByItemNameAsc);
+    }
+
+    // Same list as getAllInventorySortedByItemName. While it is cached the ETag
+    // costs nothing, so an unchanged catalog is a 304 without touching the database.
+    public InventoryCatalog getCatalog() {
+        List<Inventory> items = getAllInventorySortedByItemName();
+        InventoryCatalog current = catalog;
+        if (current != null && current.items() == items) {
+            return current;
+        }
+        InventoryCatalog fresh = new InventoryCatalog(items, etagOf(items));
+        catalog = fresh;
+        return fresh;
+    }
+
+    // Everything written or deleted since the client's version. The returned
+    // version is taken before the rows are read, see InventorySyncRepository.
+    @Transactional(readOnly = true)
+    public InventoryChangesResponse getChangesSince(long since) {
+        long version = syncRepository.watermark();
+        List<Inventory> upserts = inventoryRepository.findByRowVersionGreaterThanEqualOrderByRowVersion(since);
+        List<InventoryTombstone> deletes = tombstoneRepository.findByRowVersionGreaterThanEqualOrderByRowVersion(since);
+        return new InventoryChangesResponse(Math.max(version, since), upserts, deletes);
+    }
+
+    // Same order as /all, one page at a time. The cursor is the (item name, id)
+    // of the last row sent, so rows added or removed meanwhile never shift a page.
+    public InventoryPageResponse getInventoryPage(String cursor, Integer size) {
+        int pageSize = size == null ? defaultPageSize : size;
+        if (pageSize < 1 || pageSize > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        // One extra row tells us whether there is a next page
+        Limit limit = Limit.of(pageSize + 1);
+        List<InventoryListItem> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = inventoryRepository.findFirstListPage(limit);
+        } else {
+            InventoryListItem after = decodeCursor(cursor);
+            rows = inventoryRepository.findListPageAfter(after.itemName(), after.id(), limit);
+        }
+
+        if (rows.size() <= pageSize) {
+            return new InventoryPageResponse(rows, null);
+        }
+        List<InventoryListItem> page = rows.subList(0, pageSize);
+        return new InventoryPageResponse(page, encodeCursor(page.get(pageSize - 1)));
+    }
+
+    // Every write path sets these, the JDBC ones in SQL
+    private void stamp(Inventory inventory) {
+        inventory.setRowVersion(syncRepository.currentTransactionVersion());
+        inventory.setLastModified(LocalDateTime.now());
+    }
+
+    static String etagOf(List<Inventory> items) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+            for (Inventory item : items) {
+                buffer.clear();
+                buffer.putLong(item.getId());
+                buffer.putLong(item.getRowVersion() == null ? -1 : item.getRowVersion());
+                digest.update(buffer.array());
+            }
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String encodeCursor(InventoryListItem last) {
+        String raw = last.id() + ":" + last.itemName();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Only id and itemName are filled in
+    static InventoryListItem decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = raw.indexOf(':');
+            Long id = Long.valueOf(raw.substring(0, colon));
+            return new InventoryListItem(id, raw.substring(colon + 1), null, null, null, 0, null);
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
 
-    public InventoryService(InventoryRepository inventoryRepository) {
+    public InventoryService(InventoryRepository inventoryRepository,
+                            InventoryStockRepository inventoryStockRepository,
+                            InventorySearchIndex searchIndex,
+                            InventoryQueryCache queryCache,
+                            LowStockTracker lowStockTracker,
+                            InventorySyncRepository syncRepository,
+                            InventoryTombstoneRepository tombstoneRepository,
+                            ApplicationEventPublisher eventPublisher) {
         this.inventoryRepository = inventoryRepository;
+        this.inventoryStockRepository = inventoryStockRepository;
+        this.searchIndex = searchIndex;
+        this.queryCache = queryCache;
+        this.lowStockTracker = lowStockTracker;
+        this.syncRepository = syncRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.eventPublisher = eventPublisher;
     }
 
+    @RetryOnConflict
+    @Transactional
     public Inventory saveMedicine(Inventory inventory) {
-        return inventoryRepository.save(inventory);
+        stamp(inventory);
+        // Flushed so the event carries the version the row was written with
+        Inventory saved = inventoryRepository.saveAndFlush(inventory);
+        eventPublisher.publishEvent(InventoryChangedEvent.upserted(saved));
+        return saved;
     }
 
     public List<Inventory> getAllMedicine() {
         return inventoryRepository.findAll();
     }
 
+    // Served from the in-memory index, no database round trip
     public List<Inventory> getMedByName(String name) {
-        return inventoryRepository.findAllByItemNameContainingIgnoreCase(name);
+        return queryCache.get(InventoryQueryCache.searchKey(name), () -> searchIndex.search(name));
     }
 
+    @RetryOnConflict
+    @Transactional
     public void deleteMedicineByNameAndCategory(String name, String category) {
         Inventory inventory = inventoryRepository.findByItemNameAndCategory(name, category)
                 .orElseThrow(() -> new RuntimeException("Medicine not found with name: " + name + category));
         inventoryRepository.delete(inventory);
+        tombstoneRepository.save(new InventoryTombstone(inventory.getId(), inventory.getItemName(),
+                inventory.getCategory(), syncRepository.currentTransactionVersion(), LocalDateTime.now()));
+        eventPublisher.publishEvent(InventoryChangedEvent.deleted(inventory));
     }
 
+    @RetryOnConflict
+    @Transactional
     public Inventory updateMedicineByNameAndCategory(String name, String category, Inventory updatedInventory) {
         Inventory inventory = inventoryRepository.findByItemNameAndCategory(name, category)
                 .orElseThrow(() -> new RuntimeException("Medicine not found with name: " + name + category));
@@ -48,8 +200,14 @@ public class InventoryService {
         inventory.setUnitPrice(updatedInventory.getUnitPrice());
         inventory.setPurchaseDiscount(updatedInventory.getPurchaseDiscount());
         inventory.setSellPrice(updatedInventory.getSellPrice());
+        if (updatedInventory.getReorderLevel() != null) {
+            inventory.setReorderLevel(updatedInventory.getReorderLevel());
+        }
+        stamp(inventory);
 
-        return inventoryRepository.save(inventory);
+        Inventory saved = inventoryRepository.saveAndFlush(inventory);
+        eventPublisher.publishEvent(InventoryChangedEvent.upserted(saved));
+        return saved;
     }
 
     public List<Inventory> getLowStockMedicines(int threshold) {
@@ -57,10 +215,13 @@ public class InventoryService {
     }
 
     // Modified receive logic to update quantity if item exists
+    @RetryOnConflict
+    @Transactional
     public Inventory receiveMedicine(Inventory newInventory) {
         Optional<Inventory> existing = inventoryRepository.findByItemNameAndCategory(
                 newInventory.getItemName(), newInventory.getCategory());
 
+        Inventory saved;
         if (existing.isPresent()) {
             Inventory inventory = existing.get();
             inventory.setQuantity(inventory.getQuantity() + newInventory.getQuantity());
@@ -69,22 +230,107 @@ public class InventoryService {
             inventory.setNetPurchasePrice(newInventory.getNetPurchasePrice());
             inventory.setSellPrice(newInventory.getSellPrice());
             inventory.setReceivedDate(LocalDate.now());
+            if (newInventory.getReorderLevel() != null) {
+                inventory.setReorderLevel(newInventory.getReorderLevel());
+            }
+            stamp(inventory);
 
-            return inventoryRepository.save(inventory);
+            saved = inventoryRepository.saveAndFlush(inventory);
         } else {
             newInventory.setReceivedDate(LocalDate.now());
-            return inventoryRepository.save(newInventory);
+            stamp(newInventory);
+            saved = inventoryRepository.saveAndFlush(newInventory);
+        }
+        eventPublisher.publishEvent(InventoryChangedEvent.upserted(saved));
+        return saved;
+    }
+
+    // Whole delivery at once: one query for the rows that already exist, one
+    // batch of upserts and one query for the rows as written. Invalid lines are
+    // rejected, the valid ones are applied in the same transaction.
+    @RetryOnConflict
+    @Transactional
+    public List<ReceiveLineResult> receiveDelivery(List<Inventory> lines) {
+        List<ReceiveLineResult> results = new ArrayList<>(Collections.nCopies(lines.size(), null));
+        List<Inventory> valid = new ArrayList<>();
+        List<Integer> validLines = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            Inventory line = lines.get(i);
+            String problem = validateReceiveLine(line);
+            if (problem != null) {
+                results.set(i, new ReceiveLineResult(i, line.getItemName(), line.getCategory(),
+                        ReceiveLineStatus.REJECTED, null, null, problem));
+            } else {
+                valid.add(line);
+                validLines.add(i);
+            }
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+
+        List<String> names = valid.stream().map(Inventory::getItemName).toList();
+        List<String> categories = valid.stream().map(Inventory::getCategory).toList();
+        Set<String> existing = new HashSet<>();
+        for (Inventory inventory : inventoryStockRepository.findByKeys(names, categories)) {
+            existing.add(key(inventory.getItemName(), inventory.getCategory()));
+        }
+
+        inventoryStockRepository.receive(valid, LocalDate.now());
+
+        Map<String, Inventory> written = new HashMap<>();
+        for (Inventory inventory : inventoryStockRepository.findByKeys(names, categories)) {
+            written.put(key(inventory.getItemName(), inventory.getCategory()), inventory);
         }
+        for (int v = 0; v < valid.size(); v++) {
+            Inventory line = valid.get(v);
+            String key = key(line.getItemName(), line.getCategory());
+            Inventory row = written.get(key);
+            // A repeated item in the same delivery updates the row its first line created
+            ReceiveLineStatus status = existing.add(key) ? ReceiveLineStatus.CREATED : ReceiveLineStatus.UPDATED;
+            results.set(validLines.get(v), new ReceiveLineResult(validLines.get(v), line.getItemName(),
+                    line.getCategory(), status, row.getId(), row.getQuantity(), null));
+        }
+        for (Inventory row : written.values()) {
+            eventPublisher.publishEvent(InventoryChangedEvent.upserted(row));
+        }
+        return results;
+    }
+
+    private static String validateReceiveLine(Inventory line) {
+        if (line.getItemName() == null || line.getItemName().isBlank()) {
+            return "Item name is required";
+        }
+        if (line.getCategory() == null || line.getCategory().isBlank()) {
+            return "Category is required";
+        }
+        if (line.getQuantity() <= 0) {
+            return "Quantity must be greater than 0";
+        }
+        if (line.getUnitPrice() == null || line.getSellPrice() == null) {
+            return "Unit price and sell price are required";
+        }
+        return null;
+    }
+
+    private static String key(String itemName, String category) {
+        return itemName + '\u0000' + category;
     }
 
     //***Low stock working area start***
 
+    // Both lists come from the in-memory tracker, each item against its own reorder level
     public List<Inventory> getLowStockItems() {
-        return inventoryRepository.findByQuantityLessThan(10);
+        return lowStockTracker.getLowStock();
     }
 
     public List<Inventory> getSufficientStockItems() {
-        return inventoryRepository.findByQuantityGreaterThanEqual(10);
+        return lowStockTracker.getSufficientStock();
+    }
+
+    // Initial low-stock list followed by every change to it
+    public SseEmitter subscribeLowStock() {
+        return lowStockTracker.subscribe();
     }
 
     // ** Low stock working area end **
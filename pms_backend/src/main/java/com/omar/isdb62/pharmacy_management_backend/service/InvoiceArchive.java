@@ -0,0 +1,220 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.omar.isdb62.pharmacy_management_backend.dto.InvoiceArchiveMonth;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// Invoice lines moved out of the database by InvoiceArchiver, one
+// InvoiceArchiveFile per month in app.invoice.archive.dir plus manifest.json
+// listing them. Only months in the manifest are served, a file without an
+// entry is an unfinished archive run. Archived lines are read-only.
+@Slf4j
+@Component
+public class InvoiceArchive {
+
+    private static final String MANIFEST = "manifest.json";
+    private static final String FILE_PREFIX = "invoices-";
+    private static final String FILE_SUFFIX = ".pia.gz";
+
+    private final Path dir;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+
+    // Decoded months, a lookup usually hits the same few
+    private final LoadingCache<YearMonth, List<InvoiceHistory>> decoded;
+
+    private final ReentrantLock manifestLock = new ReentrantLock();
+    private volatile NavigableMap<YearMonth, InvoiceArchiveMonth> manifest = Collections.emptyNavigableMap();
+
+    public InvoiceArchive(@Value("${app.invoice.archive.dir}") String dir,
+                          @Value("${app.invoice.archive.cache-months:4}") long cacheMonths) {
+        this.dir = Path.of(dir).toAbsolutePath();
+        this.decoded = Caffeine.newBuilder()
+                .maximumSize(cacheMonths)
+                .build(this::decode);
+    }
+
+    @PostConstruct
+    public void load() {
+        Path file = dir.resolve(MANIFEST);
+        if (Files.notExists(file)) {
+            return;
+        }
+        try {
+            List<InvoiceArchiveMonth> entries = objectMapper.readValue(file.toFile(), new TypeReference<>() {
+            });
+            NavigableMap<YearMonth, InvoiceArchiveMonth> loaded = new TreeMap<>();
+            entries.forEach(entry -> loaded.put(entry.month(), entry));
+            manifest = Collections.unmodifiableNavigableMap(loaded);
+            log.info("Invoice archive {} has {} month(s)", dir, loaded.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read invoice archive manifest " + file, e);
+        }
+    }
+
+    public List<InvoiceArchiveMonth> months() {
+        return List.copyOf(manifest.values());
+    }
+
+    public boolean contains(YearMonth month) {
+        return manifest.containsKey(month);
+    }
+
+    // Writes the month's file (sorted by date, invoice number, id) without
+    // publishing it. Fails unless the file reads back complete.
+    public void store(YearMonth month, List<InvoiceHistory> lines) throws IOException {
+        List<InvoiceHistory> sorted = new ArrayList<>(lines);
+        sorted.sort(Comparator.comparing(InvoiceHistory::getDate)
+                .thenComparing(InvoiceHistory::getInvoiceNumber, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(InvoiceHistory::getId));
+
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, FILE_PREFIX + month, ".tmp");
+        try {
+            InvoiceArchiveFile.write(tmp, sorted);
+            if (InvoiceArchiveFile.read(tmp).size() != sorted.size()) {
+                throw new IOException("Archive of " + month + " did not read back complete");
+            }
+            Files.move(tmp, fileOf(month), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        decoded.invalidate(month);
+    }
+
+    // Adds a stored month to the manifest, from then on it is served
+    public InvoiceArchiveMonth publish(YearMonth month) throws IOException {
+        List<InvoiceHistory> lines = InvoiceArchiveFile.read(fileOf(month));
+        InvoiceArchiveMonth entry = new InvoiceArchiveMonth(
+                month,
+                fileOf(month).getFileName().toString(),
+                lines.size(),
+                lines.isEmpty() ? null : lines.get(0).getDate(),
+                lines.isEmpty() ? null : lines.get(lines.size() - 1).getDate(),
+                lines.stream().map(InvoiceHistory::getInvoiceNumber).filter(Objects::nonNull)
+                        .min(Comparator.naturalOrder()).orElse(null),
+                lines.stream().map(InvoiceHistory::getInvoiceNumber).filter(Objects::nonNull)
+                        .max(Comparator.naturalOrder()).orElse(null),
+                Files.size(fileOf(month)),
+                Instant.now());
+
+        manifestLock.lock();
+        try {
+            NavigableMap<YearMonth, InvoiceArchiveMonth> updated = new TreeMap<>(manifest);
+            updated.put(month, entry);
+            writeManifest(updated.values());
+            manifest = Collections.unmodifiableNavigableMap(updated);
+        } finally {
+            manifestLock.unlock();
+        }
+        decoded.put(month, lines);
+        return entry;
+    }
+
+    // Months with a file on disk but no manifest entry
+    public List<YearMonth> unpublished() throws IOException {
+        if (Files.notExists(dir)) {
+            return List.of();
+        }
+        List<YearMonth> months = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)) {
+                    YearMonth month = YearMonth.parse(
+                            name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                    if (!manifest.containsKey(month)) {
+                        months.add(month);
+                    }
+                }
+            }
+        }
+        Collections.sort(months);
+        return months;
+    }
+
+    public List<InvoiceHistory> findByInvoiceNumber(String invoiceNumber) {
+        List<InvoiceHistory> found = new ArrayList<>();
+        for (InvoiceArchiveMonth entry : manifest.values()) {
+            if (entry.minInvoiceNumber() == null
+                    || invoiceNumber.compareTo(entry.minInvoiceNumber()) < 0
+                    || invoiceNumber.compareTo(entry.maxInvoiceNumber()) > 0) {
+                continue;
+            }
+            for (InvoiceHistory line : decoded.get(entry.month())) {
+                if (invoiceNumber.equals(line.getInvoiceNumber())) {
+                    found.add(copyOf(line));
+                }
+            }
+        }
+        return found;
+    }
+
+    // Archived lines dated within the (inclusive, optional) range that match
+    // the filter, in date, invoice number, id order. Months are decoded one at
+    // a time as the iteration reaches them.
+    public Iterator<InvoiceHistory> lines(LocalDate from, LocalDate to, Predicate<InvoiceHistory> filter) {
+        Collection<InvoiceArchiveMonth> months = manifest.values().stream()
+                .filter(entry -> entry.lastDate() != null
+                        && (from == null || !entry.lastDate().isBefore(from))
+                        && (to == null || !entry.firstDate().isAfter(to)))
+                .toList();
+        Predicate<InvoiceHistory> inRange = line -> (from == null || !line.getDate().isBefore(from))
+                && (to == null || !line.getDate().isAfter(to));
+
+        return months.stream()
+                .flatMap(entry -> decoded.get(entry.month()).stream())
+                .filter(inRange.and(filter))
+                .map(InvoiceArchive::copyOf)
+                .iterator();
+    }
+
+    private Path fileOf(YearMonth month) {
+        return dir.resolve(FILE_PREFIX + month + FILE_SUFFIX);
+    }
+
+    private List<InvoiceHistory> decode(YearMonth month) throws IOException {
+        return List.copyOf(InvoiceArchiveFile.read(fileOf(month)));
+    }
+
+    // Written next to the manifest and moved over it
+    private void writeManifest(Collection<InvoiceArchiveMonth> entries) throws IOException {
+        Path tmp = Files.createTempFile(dir, MANIFEST, ".tmp");
+        try {
+            objectMapper.writeValue(tmp.toFile(), new ArrayList<>(entries));
+            Files.move(tmp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Cached lines are shared, callers get their own
+    private static InvoiceHistory copyOf(InvoiceHistory line) {
+        InvoiceHistory copy = new InvoiceHistory();
+        BeanUtils.copyProperties(line, copy);
+        return copy;
+    }
+}
@@ -0,0 +1,217 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// One month of archived invoice lines, stored column by column and gzipped.
+// Values of a column sit next to each other, so names repeat in the
+// dictionaries instead of once per line and the numbers compress well.
+//
+//   magic, version, row count
+//   id        zigzag varint deltas
+//   date      first epoch day, then varint deltas (rows are sorted by date)
+//   strings   per column: dictionary (0 = null) followed by one varint index per row
+//   quantity  zigzag varints
+//   doubles   per column, raw
+final class InvoiceArchiveFile {
+
+    private static final int MAGIC = 0x504d5341; // "PMSA"
+    private static final int VERSION = 1;
+
+    private static final List<Function<InvoiceHistory, String>> STRING_GETTERS = List.of(
+            InvoiceHistory::getInvoiceNumber,
+            InvoiceHistory::getCustomerName,
+            InvoiceHistory::getContactNumber,
+            InvoiceHistory::getItemName,
+            InvoiceHistory::getCategory);
+
+    private static final List<ToDoubleFunction<InvoiceHistory>> DOUBLE_GETTERS = List.of(
+            InvoiceHistory::getUnitPrice,
+            InvoiceHistory::getSubTotal,
+            InvoiceHistory::getAmount,
+            InvoiceHistory::getDiscount,
+            InvoiceHistory::getDiscountAmount,
+            InvoiceHistory::getNetPayable);
+
+    private static final List<ObjDoubleConsumer<InvoiceHistory>> DOUBLE_SETTERS = List.of(
+            InvoiceHistory::setUnitPrice,
+            InvoiceHistory::setSubTotal,
+            InvoiceHistory::setAmount,
+            InvoiceHistory::setDiscount,
+            InvoiceHistory::setDiscountAmount,
+            InvoiceHistory::setNetPayable);
+
+    private InvoiceArchiveFile() {
+    }
+
+    // Lines must be sorted by date. The file is complete on disk when this returns.
+    static void write(Path file, List<InvoiceHistory> lines) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            GZIPOutputStream gzip = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DataOutputStream out = new DataOutputStream(gzip);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(lines.size());
+
+            long previousId = 0;
+            for (InvoiceHistory line : lines) {
+                writeVarLong(out, zigzag(line.getId() - previousId));
+                previousId = line.getId();
+            }
+
+            long previousDay = lines.isEmpty() ? 0 : lines.get(0).getDate().toEpochDay();
+            out.writeLong(previousDay);
+            for (InvoiceHistory line : lines) {
+                long day = line.getDate().toEpochDay();
+                if (day < previousDay) {
+                    throw new IllegalArgumentException("Archived lines must be sorted by date");
+                }
+                writeVarLong(out, day - previousDay);
+                previousDay = day;
+            }
+
+            for (Function<InvoiceHistory, String> getter : STRING_GETTERS) {
+                writeStrings(out, lines, getter);
+            }
+
+            for (InvoiceHistory line : lines) {
+                writeVarLong(out, zigzag(line.getQuantity()));
+            }
+
+            for (ToDoubleFunction<InvoiceHistory> getter : DOUBLE_GETTERS) {
+                for (InvoiceHistory line : lines) {
+                    out.writeDouble(getter.applyAsDouble(line));
+                }
+            }
+
+            gzip.finish();
+            out.flush();
+            channel.force(true);
+            out.close();
+        }
+    }
+
+    static List<InvoiceHistory> read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not an invoice archive");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported archive version " + version);
+            }
+            int rows = in.readInt();
+
+            List<InvoiceHistory> lines = new ArrayList<>(rows);
+            long id = 0;
+            for (int i = 0; i < rows; i++) {
+                id += unzigzag(readVarLong(in));
+                InvoiceHistory line = new InvoiceHistory();
+                line.setId(id);
+                lines.add(line);
+            }
+
+            long day = in.readLong();
+            for (InvoiceHistory line : lines) {
+                day += readVarLong(in);
+                line.setDate(LocalDate.ofEpochDay(day));
+            }
+
+            String[][] strings = new String[STRING_GETTERS.size()][];
+            for (int c = 0; c < strings.length; c++) {
+                strings[c] = readStrings(in, rows);
+            }
+            for (int i = 0; i < rows; i++) {
+                InvoiceHistory line = lines.get(i);
+                line.setInvoiceNumber(strings[0][i]);
+                line.setCustomerName(strings[1][i]);
+                line.setContactNumber(strings[2][i]);
+                line.setItemName(strings[3][i]);
+                line.setCategory(strings[4][i]);
+            }
+
+            for (InvoiceHistory line : lines) {
+                line.setQuantity((int) unzigzag(readVarLong(in)));
+            }
+
+            for (ObjDoubleConsumer<InvoiceHistory> setter : DOUBLE_SETTERS) {
+                for (InvoiceHistory line : lines) {
+                    setter.accept(line, in.readDouble());
+                }
+            }
+            return lines;
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<InvoiceHistory> lines,
+                                     Function<InvoiceHistory, String> getter) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] indexes = new int[lines.size()];
+        for (int i = 0; i < lines.size(); i++) {
+            String value = getter.apply(lines.get(i));
+            indexes[i] = value == null ? 0 : dictionary.computeIfAbsent(value, v -> dictionary.size() + 1);
+        }
+        writeVarLong(out, dictionary.size());
+        for (String value : dictionary.keySet()) {
+            out.writeUTF(value);
+        }
+        for (int index : indexes) {
+            writeVarLong(out, index);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in, int rows) throws IOException {
+        String[] dictionary = new String[(int) readVarLong(in) + 1];
+        for (int i = 1; i < dictionary.length; i++) {
+            dictionary[i] = in.readUTF();
+        }
+        String[] values = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            values[i] = dictionary[(int) readVarLong(in)];
+        }
+        return values;
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.writeByte((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in invoice archive");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,94 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoicePartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Moves months of invoice history older than app.invoice.archive.after-months
+// out of the database into InvoiceArchive, oldest first. A month is locked,
+// written to its file and dropped in one transaction, then published in the
+// manifest; a run that dies after the drop is finished by the next one.
+@Slf4j
+@Service
+public class InvoiceArchiver {
+
+    private final InvoiceArchive archive;
+    private final InvoicePartitionRepository partitionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int afterMonths;
+
+    public InvoiceArchiver(InvoiceArchive archive,
+                           InvoicePartitionRepository partitionRepository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.invoice.archive.after-months:0}") int afterMonths) {
+        this.archive = archive;
+        this.partitionRepository = partitionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.afterMonths = afterMonths;
+    }
+
+    @Scheduled(cron = "${app.invoice.archive.cron:0 45 0 * * *}")
+    public void run() {
+        if (afterMonths <= 0) {
+            return;
+        }
+        try {
+            recover();
+            YearMonth cutoff = YearMonth.now().minusMonths(afterMonths);
+            for (YearMonth month : partitionRepository.attachedMonths()) {
+                if (!month.isBefore(cutoff)) {
+                    break;
+                }
+                archiveMonth(month);
+            }
+        } catch (RuntimeException | IOException e) {
+            // Stop at the first failure, archived months must stay older than attached ones
+            log.error("Invoice archiving stopped", e);
+        }
+    }
+
+    // Returns the number of lines archived
+    public int archiveMonth(YearMonth month) throws IOException {
+        if (!month.isBefore(YearMonth.now())) {
+            throw new IllegalArgumentException("Cannot archive the current or a future month: " + month);
+        }
+        Integer archived = transactionTemplate.execute(status -> {
+            List<InvoiceHistory> lines = partitionRepository.lockAndReadMonth(month);
+            try {
+                archive.store(month, lines);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write invoice archive for " + month, e);
+            }
+            partitionRepository.dropMonth(month);
+            return lines.size();
+        });
+        archive.publish(month);
+        log.info("Archived {} invoice line(s) of {}", archived, month);
+        return archived;
+    }
+
+    // Files whose month is gone from the database were written by a run that
+    // stopped before publishing. Files of months still attached are left to
+    // be overwritten when the month is archived again.
+    private void recover() throws IOException {
+        Set<YearMonth> attached = new HashSet<>(partitionRepository.attachedMonths());
+        for (YearMonth month : archive.unpublished()) {
+            if (!attached.contains(month) && !partitionRepository.tableExists(month)) {
+                archive.publish(month);
+                log.info("Published invoice archive of {} left by an earlier run", month);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+// Writes invoice lines as newline-delimited JSON while they are read, one
+// object per line. Rows come through a forward-only cursor and are detached
+// once written, so memory stays flat whatever the size of the table.
+@Service
+public class InvoiceExportService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+    // ObjectMapper.writeValue would flush the generator after every row
+    private final ObjectWriter rowWriter;
+    private final TransactionTemplate readOnly;
+
+    @Value("${app.export.fetch-size:500}")
+    private int fetchSize;
+
+    // Rows between flushes, so the client sees data while the export runs
+    @Value("${app.export.flush-every:1000}")
+    private int flushEvery;
+
+    public InvoiceExportService(ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    // Both dates are optional and inclusive. Returns the number of lines written.
+    public long writeNdjson(LocalDate from, LocalDate to, OutputStream out) {
+        Long written = readOnly.execute(status -> {
+            try (Stream<InvoiceHistory> rows = query(from, to).getResultStream();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                // The caller owns the response stream
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+                long count = 0;
+                for (InvoiceHistory row : (Iterable<InvoiceHistory>) rows::iterator) {
+                    rowWriter.writeValue(generator, row);
+                    generator.writeRaw('\n');
+                    entityManager.detach(row);
+                    if (row.getInvoice() != null) {
+                        entityManager.detach(row.getInvoice());
+                    }
+                    if (++count % flushEvery == 0) {
+                        generator.flush();
+                    }
+                }
+                generator.flush();
+                return count;
+            } catch (IOException e) {
+                // Usually the client went away, nothing left to send
+                throw new UncheckedIOException(e);
+            }
+        });
+        return written == null ? 0 : written;
+    }
+
+    private TypedQuery<InvoiceHistory> query(LocalDate from, LocalDate to) {
+        // The header carries the invoice number and customer of each line
+        StringBuilder jpql = new StringBuilder("select i from InvoiceHistory i left join fetch i.invoice where 1 = 1");
+        if (from != null) {
+            jpql.append(" and i.date >= :from");
+        }
+        if (to != null) {
+            jpql.append(" and i.date <= :to");
+        }
+        jpql.append(" order by i.id");
+
+        TypedQuery<InvoiceHistory> query = entityManager.createQuery(jpql.toString(), InvoiceHistory.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return query;
+    }
+}
@@ -1,15 +1,29 @@
 package com.omar.isdb62.pharmacy_management_backend.service;
 
+import com.omar.isdb62.pharmacy_management_backend.configaration.RetryOnConflict;
+import com.omar.isdb62.pharmacy_management_backend.dto.SalesDayTotals;
+import com.omar.isdb62.pharmacy_management_backend.dto.SalesItemTotals;
+import com.omar.isdb62.pharmacy_management_backend.dto.SalesSummaryResponse;
+import com.omar.isdb62.pharmacy_management_backend.dto.StockShortage;
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.exception.InsufficientStockException;
+import com.omar.isdb62.pharmacy_management_backend.model.Invoice;
 import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
-import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryStockRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryStockRepository.StockLevel;
 import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
-import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.SalesDailySummaryRepository;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.text.SimpleDateFormat;
 import java.time.LocalDate;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -18,14 +32,29 @@ public class InvoiceHistoryService {
     private InvoiceHistoryRepository invoiceHistoryRepository;
 
     @Autowired
-    private InventoryRepository inventoryRepository;
+    private InvoiceRepository invoiceRepository;
 
-    // Generate invoice number
+    @Autowired
+    private InventoryStockRepository inventoryStockRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private InvoiceNumberAllocator invoiceNumberAllocator;
+
+    @Autowired
+    private SalesDailySummaryRepository salesDailySummaryRepository;
+
+    @Autowired
+    private InvoiceArchive invoiceArchive;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Generate invoice number, outside any transaction (see InvoiceNumberAllocator)
     public String generateInvoiceNumber() {
-        String datePrefix = new SimpleDateFormat("yyyyMMdd").format(new Date());
-        String prefix = "INV-" + datePrefix;
-        int count = invoiceHistoryRepository.countByInvoiceNumberStartingWith(prefix) + 1;
-        return String.format("%s-%04d", prefix, count);
+        return invoiceNumberAllocator.next();
     }
 
     // Create invoice and update inventory
@@ -54,79 +83,213 @@ public class InvoiceHistoryService {
 //        return invoiceHistoryRepository.save(invoice);
 //    }
 
+    // Checkout: one conditional decrement per line in a single batch, all or nothing.
+    // If any line is short the whole cart rolls back and every short line is reported.
+    // The invoice number is taken before the transaction opens. Every attempt
+    // works on copies, the caller's lines are left as they were sent.
+    @RetryOnConflict
     public List<InvoiceHistory> createInvoices(List<InvoiceHistory> invoices) {
-        String invoiceNumber = generateInvoiceNumber(); // Same number for all
+        if (invoices.isEmpty()) {
+            return List.of();
+        }
+        String invoiceNumber = generateInvoiceNumber();
+        List<InvoiceHistory> lines = copyOf(invoices);
+        return new TransactionTemplate(transactionManager).execute(status -> checkout(lines, invoiceNumber));
+    }
 
+    // checkout() fills in the lines it is given (header, date, ids on save) and
+    // a rolled back attempt leaves them that way: saved again they would be
+    // merged as detached rows that no longer exist. A retry starts from copies.
+    static List<InvoiceHistory> copyOf(List<InvoiceHistory> invoices) {
+        List<InvoiceHistory> copies = new ArrayList<>(invoices.size());
         for (InvoiceHistory invoice : invoices) {
-            invoice.setInvoiceNumber(invoiceNumber);
-            invoice.setDate(LocalDate.now());
+            InvoiceHistory copy = new InvoiceHistory();
+            BeanUtils.copyProperties(invoice, copy);
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    // The checkout in the caller's transaction. CheckoutBatcher runs several in
+    // one transaction and rolls a refused cart back to its savepoint, so a
+    // refusal must not go through @Transactional (it would mark the whole
+    // transaction rollback-only). Refusals are thrown before anything is persisted.
+    public List<InvoiceHistory> checkout(List<InvoiceHistory> invoices, String invoiceNumber) {
+        if (invoices.isEmpty()) {
+            return List.of();
+        }
+        LocalDate today = LocalDate.now();
 
-            Inventory inventory = inventoryRepository.findByItemNameAndCategory(
-                            invoice.getItemName(), invoice.getCategory())
-                    .orElseThrow(() -> new RuntimeException("Inventory item not found."));
+        // Customer fields come from the first line, the till sends the same on every line
+        InvoiceHistory first = invoices.get(0);
+        Invoice header = new Invoice();
+        header.setInvoiceNumber(invoiceNumber); // Same number for all
+        header.setCustomerName(first.getCustomerName());
+        header.setContactNumber(first.getContactNumber());
+        header.setDiscount(first.getDiscount());
+        header.setDate(today);
 
-            if (inventory.getQuantity() < invoice.getQuantity()) {
-                throw new RuntimeException("Not enough stock.");
+        for (InvoiceHistory invoice : invoices) {
+            if (invoice.getQuantity() <= 0) {
+                throw new RuntimeException("Invalid quantity for item: " + invoice.getItemName());
             }
+            invoice.setInvoice(header);
+            invoice.setDate(today);
+        }
+        header.applyTotals(invoices);
+
+        StockLevel[] levels = inventoryStockRepository.decrementStock(invoices);
 
-            inventory.setQuantity(inventory.getQuantity() - invoice.getQuantity());
-            inventoryRepository.save(inventory);
+        List<StockShortage> shortages = new ArrayList<>();
+        for (int i = 0; i < levels.length; i++) {
+            if (levels[i] == null) {
+                InvoiceHistory line = invoices.get(i);
+                shortages.add(new StockShortage(i, line.getItemName(), line.getCategory(), line.getQuantity(),
+                        inventoryStockRepository.availableQuantity(line.getItemName(), line.getCategory())));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            throw new InsufficientStockException(shortages);
         }
 
-        return invoiceHistoryRepository.saveAll(invoices);
+        invoiceRepository.save(header);
+        List<InvoiceHistory> saved = invoiceHistoryRepository.saveAll(invoices);
+        salesDailySummaryRepository.applyLines(saved, 1);
+        for (int i = 0; i < invoices.size(); i++) {
+            InvoiceHistory invoice = invoices.get(i);
+            eventPublisher.publishEvent(InventoryChangedEvent.stockAdjusted(
+                    invoice.getItemName(), invoice.getCategory(), levels[i].quantity(), levels[i].version()));
+        }
+        return saved;
     }
 
 
+    // Customer fields and discount are the header's, so they change for the
+    // whole invoice. The item fields still go to the first line only.
+    @Transactional
     public InvoiceHistory updateInvoiceByInvoiceNumber(String invoiceNumber, InvoiceHistory updatedInvoice) {
-        List<InvoiceHistory> invoices = invoiceHistoryRepository.findByInvoiceNumber(invoiceNumber);
+        Invoice header = findHeader(invoiceNumber);
+        List<InvoiceHistory> invoices = findInvoiceLines(header);
 
         if (invoices.isEmpty()) {
-            throw new RuntimeException("Invoice not found with number: " + invoiceNumber);
+            throw new RuntimeException("Archived invoices cannot be changed: " + invoiceNumber);
         }
 
-        // Update only the first invoice entry (or loop through all if needed)
         InvoiceHistory invoice = invoices.get(0); // Assuming you're updating the first one only
 
-        invoice.setCustomerName(updatedInvoice.getCustomerName());
-        invoice.setContactNumber(updatedInvoice.getContactNumber());
+        // Take the line out of the rollup with its old values, add it back below
+        InvoiceHistory before = new InvoiceHistory();
+        BeanUtils.copyProperties(invoice, before);
+        salesDailySummaryRepository.applyLines(List.of(before), -1);
+
+        header.setCustomerName(updatedInvoice.getCustomerName());
+        header.setContactNumber(updatedInvoice.getContactNumber());
+        header.setDiscount(updatedInvoice.getDiscount());
         invoice.setItemName(updatedInvoice.getItemName());
         invoice.setQuantity(updatedInvoice.getQuantity());
         invoice.setUnitPrice(updatedInvoice.getUnitPrice());
         invoice.setSubTotal(updatedInvoice.getSubTotal());
         invoice.setAmount(updatedInvoice.getAmount());
-        invoice.setDiscount(updatedInvoice.getDiscount());
         invoice.setDiscountAmount(updatedInvoice.getDiscountAmount());
         invoice.setNetPayable(updatedInvoice.getNetPayable());
         invoice.setDate(LocalDate.now());
 
-        return invoiceHistoryRepository.save(invoice);
+        header.applyTotals(invoices);
+
+        InvoiceHistory saved = invoiceHistoryRepository.save(invoice);
+        salesDailySummaryRepository.applyLines(List.of(saved), 1);
+        return saved;
     }
 
 
+    @Transactional
     public void deleteByInvoiceNumber(String invoiceNumber) {
-        List<InvoiceHistory> invoices = invoiceHistoryRepository.findByInvoiceNumber(invoiceNumber);
+        Invoice header = findHeader(invoiceNumber);
+        List<InvoiceHistory> invoices = findInvoiceLines(header);
         if (invoices.isEmpty()) {
-            throw new RuntimeException("Invoice not found with number: " + invoiceNumber);
+            throw new RuntimeException("Archived invoices cannot be deleted: " + invoiceNumber);
         }
         invoiceHistoryRepository.deleteAll(invoices);
+        invoiceRepository.delete(header);
+        salesDailySummaryRepository.applyLines(invoices, -1);
     }
 
     public List<InvoiceHistory> getAllInvoiceHistories() {
         return invoiceHistoryRepository.findAll();
     }
 
+    // Headers only, newest first. Both dates are optional and inclusive, no
+    // invoice is issued after today.
+    public List<Invoice> getInvoices(LocalDate from, LocalDate to) {
+        if (from == null && to == null) {
+            return invoiceRepository.findAllByOrderByDateDescIdDesc();
+        }
+        return invoiceRepository.findByDateBetweenOrderByDateDescIdDesc(
+                from != null ? from : LocalDate.EPOCH, to != null ? to : LocalDate.now());
+    }
+
+    // Falls back to the archive for invoices moved out of the database
     public List<InvoiceHistory> getByInvoiceNumber(String invoiceNumber) {
-        List<InvoiceHistory> invoices = invoiceHistoryRepository.findByInvoiceNumber(invoiceNumber);
+        List<InvoiceHistory> invoices = invoiceRepository.findByInvoiceNumber(invoiceNumber)
+                .map(this::findInvoiceLines)
+                .orElse(List.of());
+        if (invoices.isEmpty()) {
+            invoices = invoiceArchive.findByInvoiceNumber(invoiceNumber);
+        }
         if (invoices.isEmpty()) {
             throw new RuntimeException("Invoice not found with number: " + invoiceNumber);
         }
         return invoices;
     }
 
+    private Invoice findHeader(String invoiceNumber) {
+        return invoiceRepository.findByInvoiceNumber(invoiceNumber)
+                .orElseThrow(() -> new RuntimeException("Invoice not found with number: " + invoiceNumber));
+    }
 
+    // Lines are never dated before their header (an update moves them to the
+    // update day), so the header's date bounds the partitions read
+    private List<InvoiceHistory> findInvoiceLines(Invoice header) {
+        return invoiceHistoryRepository.findByInvoiceAndDateGreaterThanEqualOrderById(header, header.getDate());
+    }
 
     public List<InvoiceHistory> getTodaySales() {
         return invoiceHistoryRepository.findByDate(LocalDate.now());
     }
 
+    //***Sales summary (rollup) start***
+
+    // Reads sales_daily_summary, so the cost follows the number of days, not invoice lines
+    public SalesSummaryResponse getSalesSummary(LocalDate from, LocalDate to) {
+        List<SalesDayTotals> days = salesDailySummaryRepository.findDayTotals(from, to);
+
+        long quantity = 0;
+        long lineCount = 0;
+        double subTotal = 0;
+        double amount = 0;
+        double discountAmount = 0;
+        double netPayable = 0;
+        for (SalesDayTotals day : days) {
+            quantity += day.quantity();
+            lineCount += day.lineCount();
+            subTotal += day.subTotal();
+            amount += day.amount();
+            discountAmount += day.discountAmount();
+            netPayable += day.netPayable();
+        }
+        return new SalesSummaryResponse(from, to, quantity, lineCount, subTotal, amount, discountAmount,
+                netPayable, days);
+    }
+
+    public List<SalesItemTotals> getSalesByItem(LocalDate from, LocalDate to) {
+        return salesDailySummaryRepository.findItemTotals(from, to);
+    }
+
+    @Transactional
+    public void rebuildSalesSummary() {
+        salesDailySummaryRepository.rebuild();
+    }
+
+    // ** Sales summary end **
+
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceNumberCounterRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Hands out INV-yyyyMMdd-NNNN numbers using hi/lo blocks reserved from the
+// per-day counter row. Only one allocation per block touches the database, and
+// blocks never overlap between threads or application instances.
+//
+// A refill needs a connection of its own (the reservation commits on its own),
+// so next() must be called before the checkout transaction opens: asking for a
+// second connection while holding one can drain the pool. The lock only guards
+// the in-memory block; threads that find it used up reserve without it, and a
+// block reserved by a thread that lost the race is kept for the next refill.
+@Component
+public class InvoiceNumberAllocator {
+
+    // Reserves the next blockSize numbers of the day and returns the highest one
+    interface BlockReserver {
+        long reserve(LocalDate day, int blockSize);
+    }
+
+    private record Taken(LocalDate day, long value) {
+    }
+
+    private final BlockReserver reserver;
+    private final Clock clock;
+    private final int blockSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private LocalDate day;
+    private long next;
+    private long hi;
+    // Highest numbers of blocks reserved but not started yet, all of this day
+    private final Deque<Long> spareBlocks = new ArrayDeque<>();
+
+    @Autowired
+    public InvoiceNumberAllocator(InvoiceNumberCounterRepository counterRepository,
+                                  @Value("${app.invoice.number-block-size:20}") int blockSize) {
+        this(counterRepository::reserveBlock, Clock.systemDefaultZone(), blockSize);
+    }
+
+    InvoiceNumberAllocator(BlockReserver reserver, Clock clock, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.reserver = reserver;
+        this.clock = clock;
+        this.blockSize = blockSize;
+    }
+
+    public String next() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Invoice numbers must be taken before the checkout transaction opens");
+        }
+        Taken taken = take();
+        if (taken == null) {
+            LocalDate today = LocalDate.now(clock);
+            taken = install(today, reserver.reserve(today, blockSize));
+        }
+        return String.format("INV-%s-%04d", taken.day().format(DateTimeFormatter.BASIC_ISO_DATE), taken.value());
+    }
+
+    // The next number of the current (or a spare) block, null when a block must be reserved
+    private Taken take() {
+        lock.lock();
+        try {
+            startDay(LocalDate.now(clock));
+            if (next > hi && !spareBlocks.isEmpty()) {
+                hi = spareBlocks.poll();
+                next = hi - blockSize + 1;
+            }
+            return next <= hi ? new Taken(day, next++) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Starts the reserved block, or keeps it as a spare if another thread refilled first
+    private Taken install(LocalDate reservedDay, long reservedHi) {
+        lock.lock();
+        try {
+            startDay(reservedDay);
+            if (!reservedDay.equals(day)) {
+                // The day ended while reserving, the rest of the block is skipped
+                return new Taken(reservedDay, reservedHi - blockSize + 1);
+            }
+            if (next > hi) {
+                hi = reservedHi;
+                next = hi - blockSize + 1;
+            } else {
+                spareBlocks.add(reservedHi);
+            }
+            return new Taken(day, next++);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void startDay(LocalDate today) {
+        if (day == null || day.isBefore(today)) {
+            day = today;
+            next = 1;
+            hi = 0;
+            spareBlocks.clear();
+        }
+    }
+
+    // The day an invoice number was handed out, empty for numbers in any other format
+    public static Optional<LocalDate> dateOf(String invoiceNumber) {
+        if (invoiceNumber == null || !invoiceNumber.startsWith("INV-") || invoiceNumber.length() < 13) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(LocalDate.parse(invoiceNumber.substring(4, 12), DateTimeFormatter.BASIC_ISO_DATE));
+        } catch (DateTimeParseException ex) {
+            return Optional.empty();
+        }
+    }
+}
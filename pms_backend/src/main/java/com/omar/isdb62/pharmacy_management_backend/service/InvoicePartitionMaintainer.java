@@ -0,0 +1,94 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoicePartitionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Keeps the invoice history partitioned ahead of time: the current month and
+// the next few always exist, so a sale never has nowhere to go. With a
+// retention set, months older than that are detached.
+@Slf4j
+@Service
+public class InvoicePartitionMaintainer {
+
+    private final InvoicePartitionRepository partitionRepository;
+    private final Clock clock;
+    private final int monthsAhead;
+    private final int retentionMonths;
+
+    @Autowired
+    public InvoicePartitionMaintainer(InvoicePartitionRepository partitionRepository,
+                                      @Value("${app.invoice.partitions.months-ahead:3}") int monthsAhead,
+                                      @Value("${app.invoice.partitions.retention-months:0}") int retentionMonths) {
+        this(partitionRepository, Clock.systemDefaultZone(), monthsAhead, retentionMonths);
+    }
+
+    InvoicePartitionMaintainer(InvoicePartitionRepository partitionRepository, Clock clock,
+                               int monthsAhead, int retentionMonths) {
+        this.partitionRepository = partitionRepository;
+        this.clock = clock;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.invoice.partitions.maintenance-cron:0 15 0 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now(clock);
+        Set<YearMonth> attached = new HashSet<>(partitionRepository.attachedMonths());
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            if (!attached.contains(month)) {
+                try {
+                    partitionRepository.createMonth(month);
+                    log.info("Created invoice history partition {}", InvoicePartitionRepository.partitionName(month));
+                } catch (DataAccessException ex) {
+                    // Usually another instance created it first, the next run retries otherwise
+                    log.warn("Could not create invoice history partition {}",
+                            InvoicePartitionRepository.partitionName(month), ex);
+                }
+            }
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (YearMonth month : attached) {
+                if (month.isBefore(oldestKept)) {
+                    detach(month);
+                }
+            }
+        }
+    }
+
+    public List<YearMonth> attachedMonths() {
+        return partitionRepository.attachedMonths();
+    }
+
+    // Takes the month out of the invoice history without copying it. The
+    // sales summary keeps its totals until it is rebuilt, a rebuild only sees
+    // attached months.
+    public void detach(YearMonth month) {
+        if (!month.isBefore(YearMonth.now(clock))) {
+            throw new IllegalArgumentException("Cannot detach the current or a future month: " + month);
+        }
+        partitionRepository.detachMonth(month);
+        log.info("Detached invoice history partition {}", InvoicePartitionRepository.partitionName(month));
+    }
+}
@@ -1,34 +1,216 @@
 package com.omar.isdb62.pharmacy_management_backend.service;
 
+import com.omar.isdb62.pharmacy_management_backend.dto.InvoiceHistoryReportFilter;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
 import net.sf.jasperreports.engine.*;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.sql.Connection;
-import java.sql.SQLException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @Service
 public class JasperReportService {
 
+    private static final String INVOICE_HISTORY_SQL =
+            "SELECT f.invoice_number, f.customer_name, f.contact_number, l.item_name, l.category, l.quantity, " +
+            "l.unit_price, l.sub_total, l.amount, f.discount, l.discount_amount, l.net_payable " +
+            "FROM flutter_invoice_history l LEFT JOIN flutter_invoice f ON f.id = l.invoice_id";
+
     @Autowired
     private DataSource dataSource;
 
-    public byte[] generateInvoiceHistoryReport() throws JRException, SQLException, IOException {
-        ClassPathResource resource = new ClassPathResource("report/invoice-history.jrxml");
-        InputStream reportStream = resource.getInputStream();
+    @Autowired
+    private ReportTemplateRegistry reportTemplateRegistry;
+
+    @Autowired
+    private InvoiceArchive invoiceArchive;
+
+    // Rows pulled from the database per round trip while the report fills
+    @Value("${app.reports.jdbc-fetch-size:1000}")
+    private int fetchSize;
+
+    // Filled pages kept in heap, older pages are swapped to disk
+    @Value("${app.reports.virtualizer-max-pages:20}")
+    private int virtualizerMaxPages;
+
+    @Value("${app.reports.swap-dir:${java.io.tmpdir}/pms-report-swap}")
+    private Path swapDir;
+
+    public byte[] generateInvoiceHistoryReport(InvoiceHistoryReportFilter filter) throws JRException, SQLException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeInvoiceHistoryReport(filter, out);
+        return out.toByteArray();
+    }
 
-        JasperReport jasperReport = JasperCompileManager.compileReport(reportStream);
+    // Streams matching rows through a server side cursor into a virtualized fill,
+    // so heap use does not depend on how many invoice lines match. Archived
+    // months are all older than the ones in the database, so their lines go first.
+    public void writeInvoiceHistoryReport(InvoiceHistoryReportFilter filter, OutputStream out) throws JRException, SQLException {
+        List<Object> args = new ArrayList<>();
+        String sql = INVOICE_HISTORY_SQL + where(filter, args) + " ORDER BY l.date, f.invoice_number, l.id";
 
         try (Connection conn = dataSource.getConnection()) {
+            // PostgreSQL only honours the fetch size inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                for (int i = 0; i < args.size(); i++) {
+                    ps.setObject(i + 1, args.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    JRDataSource archived = archivedRows(filter);
+                    writeInvoiceHistoryReport(concat(archived, new JRResultSetDataSource(rs)), out);
+                }
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    void writeInvoiceHistoryReport(JRDataSource rows, OutputStream out) throws JRException {
+        JasperReport jasperReport = reportTemplateRegistry.get(ReportTemplateRegistry.INVOICE_HISTORY);
+        JRSwapFileVirtualizer virtualizer = new JRSwapFileVirtualizer(
+                virtualizerMaxPages, new JRSwapFile(swapDirectory(), 4096, 256), true);
+        try {
             Map<String, Object> parameters = new HashMap<>();
-            JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, parameters, conn);
-            return JasperExportManager.exportReportToPdf(jasperPrint);
+            parameters.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+
+            JasperPrint jasperPrint = JasperFillManager.fillReport(jasperReport, parameters, cancellable(rows));
+            virtualizer.setReadOnly(true);
+            JasperExportManager.exportReportToPdfStream(jasperPrint, out);
+        } finally {
+            virtualizer.cleanup();
+        }
+    }
+
+    // Lets a cancelled report job (interrupted thread) stop at the next row
+    private static JRDataSource cancellable(JRDataSource rows) {
+        return new JRDataSource() {
+            @Override
+            public boolean next() throws JRException {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new JRException("Report generation was cancelled");
+                }
+                return rows.next();
+            }
+
+            @Override
+            public Object getFieldValue(JRField field) throws JRException {
+                return rows.getFieldValue(field);
+            }
+        };
+    }
+
+    // Archived lines under the same filter as where()
+    private JRDataSource archivedRows(InvoiceHistoryReportFilter filter) {
+        String customer = StringUtils.hasText(filter.customer()) ? filter.customer().toLowerCase(Locale.ROOT) : null;
+        Iterator<InvoiceHistory> lines = invoiceArchive.lines(filter.from(), filter.to(), line ->
+                (!StringUtils.hasText(filter.category()) || filter.category().equals(line.getCategory()))
+                        && (customer == null || (line.getCustomerName() != null
+                        && line.getCustomerName().toLowerCase(Locale.ROOT).contains(customer))));
+
+        return new JRDataSource() {
+            private InvoiceHistory current;
+
+            @Override
+            public boolean next() {
+                current = lines.hasNext() ? lines.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public Object getFieldValue(JRField field) throws JRException {
+                return switch (field.getName()) {
+                    case "invoice_number" -> current.getInvoiceNumber();
+                    case "customer_name" -> current.getCustomerName();
+                    case "contact_number" -> current.getContactNumber();
+                    case "item_name" -> current.getItemName();
+                    case "category" -> current.getCategory();
+                    case "quantity" -> current.getQuantity();
+                    case "unit_price" -> current.getUnitPrice();
+                    case "sub_total" -> current.getSubTotal();
+                    case "amount" -> current.getAmount();
+                    case "discount" -> current.getDiscount();
+                    case "discount_amount" -> current.getDiscountAmount();
+                    case "net_payable" -> current.getNetPayable();
+                    default -> throw new JRException("Unknown invoice field " + field.getName());
+                };
+            }
+        };
+    }
+
+    // All rows of the first source, then all of the second
+    private static JRDataSource concat(JRDataSource first, JRDataSource second) {
+        return new JRDataSource() {
+            private JRDataSource current = first;
+
+            @Override
+            public boolean next() throws JRException {
+                if (current.next()) {
+                    return true;
+                }
+                if (current == first) {
+                    current = second;
+                    return current.next();
+                }
+                return false;
+            }
+
+            @Override
+            public Object getFieldValue(JRField field) throws JRException {
+                return current.getFieldValue(field);
+            }
+        };
+    }
+
+    private static String where(InvoiceHistoryReportFilter filter, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (filter.from() != null) {
+            conditions.add("l.date >= ?");
+            args.add(Date.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            conditions.add("l.date <= ?");
+            args.add(Date.valueOf(filter.to()));
+        }
+        if (StringUtils.hasText(filter.category())) {
+            conditions.add("l.category = ?");
+            args.add(filter.category());
+        }
+        if (StringUtils.hasText(filter.customer())) {
+            // A plain substring match, like the archive: % and _ in the name are literal
+            conditions.add("f.customer_name ILIKE ? ESCAPE '\\'");
+            args.add("%" + escapeLike(filter.customer()) + "%");
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private String swapDirectory() throws JRException {
+        try {
+            return Files.createDirectories(swapDir).toString();
+        } catch (IOException e) {
+            throw new JRException("Could not create report swap directory " + swapDir, e);
         }
     }
 }
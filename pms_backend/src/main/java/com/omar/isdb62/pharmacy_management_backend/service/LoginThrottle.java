@@ -0,0 +1,104 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.omar.isdb62.pharmacy_management_backend.exception.LoginThrottledException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+// Token buckets in front of /api/auth/login, one per client IP and one per
+// account (email). Every attempt takes a token from both; a bucket holds up
+// to capacity tokens and refills at capacity per refill-period. An empty
+// bucket answers before any password is hashed, so a stuffing run against
+// one account or from one address costs no BCrypt time. Buckets are kept in
+// memory per instance, idle ones are dropped after expire-after.
+//
+// Metrics: auth.login.throttled, by bucket (ip, account)
+@Service
+public class LoginThrottle {
+
+    private final Buckets ipBuckets;
+    private final Buckets accountBuckets;
+
+    public LoginThrottle(MeterRegistry meterRegistry,
+                         @Value("${app.auth.login.ip.capacity:30}") int ipCapacity,
+                         @Value("${app.auth.login.ip.refill-period:PT1M}") Duration ipRefillPeriod,
+                         @Value("${app.auth.login.account.capacity:5}") int accountCapacity,
+                         @Value("${app.auth.login.account.refill-period:PT1M}") Duration accountRefillPeriod,
+                         @Value("${app.auth.login.max-buckets:100000}") long maxBuckets,
+                         @Value("${app.auth.login.expire-after:PT15M}") Duration expireAfter) {
+        this(meterRegistry, ipCapacity, ipRefillPeriod, accountCapacity, accountRefillPeriod,
+                maxBuckets, expireAfter, System::nanoTime);
+    }
+
+    LoginThrottle(MeterRegistry meterRegistry, int ipCapacity, Duration ipRefillPeriod,
+                  int accountCapacity, Duration accountRefillPeriod, long maxBuckets, Duration expireAfter,
+                  LongSupplier nanoClock) {
+        this.ipBuckets = new Buckets("ip", ipCapacity, ipRefillPeriod, maxBuckets, expireAfter, nanoClock, meterRegistry);
+        this.accountBuckets = new Buckets("account", accountCapacity, accountRefillPeriod, maxBuckets, expireAfter,
+                nanoClock, meterRegistry);
+    }
+
+    // Throws LoginThrottledException when either bucket is empty
+    public void acquire(String clientIp, String email) {
+        ipBuckets.take(clientIp == null ? "" : clientIp);
+        accountBuckets.take(email == null ? "" : email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    private record Bucket(double tokens, long refilledAt) {
+    }
+
+    private static class Buckets {
+
+        private final String name;
+        private final int capacity;
+        private final double tokensPerNano;
+        private final LongSupplier nanoClock;
+        private final Cache<String, Bucket> buckets;
+        private final Counter throttled;
+
+        Buckets(String name, int capacity, Duration refillPeriod, long maxBuckets, Duration expireAfter,
+                LongSupplier nanoClock, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.capacity = capacity;
+            this.tokensPerNano = (double) capacity / refillPeriod.toNanos();
+            this.nanoClock = nanoClock;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxBuckets)
+                    .expireAfterAccess(expireAfter)
+                    .build();
+            this.throttled = Counter.builder("auth.login.throttled")
+                    .description("Login attempts refused because a token bucket was empty")
+                    .tag("bucket", name)
+                    .register(meterRegistry);
+        }
+
+        void take(String key) {
+            if (capacity <= 0) {
+                return;
+            }
+            long now = nanoClock.getAsLong();
+            boolean[] taken = new boolean[1];
+            // Refill and take in one atomic step per key
+            Bucket bucket = buckets.asMap().compute(key, (k, current) -> {
+                double tokens = current == null
+                        ? capacity
+                        : Math.min(capacity, current.tokens() + (now - current.refilledAt()) * tokensPerNano);
+                taken[0] = tokens >= 1;
+                return new Bucket(taken[0] ? tokens - 1 : tokens, now);
+            });
+            if (!taken[0]) {
+                throttled.increment();
+                long waitNanos = (long) Math.ceil((1 - bucket.tokens()) / tokensPerNano);
+                throw new LoginThrottledException("Too many login attempts (" + name + "), try again later",
+                        Duration.ofNanos(waitNanos));
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.LowStockChange;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Server-Sent Events for the low-stock screen. Every subscriber has its own
+// bounded queue of events, sent in order by a virtual thread of its own, so
+// a slow client never holds up the request that changed the stock or the
+// other clients. A client that lets its queue fill up (stalled connection)
+// is dropped instead of buffering without limit.
+@Slf4j
+@Component
+public class LowStockNotifier {
+
+    static final String SNAPSHOT_EVENT = "snapshot";
+    static final String CHANGE_EVENT = "low-stock";
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService pusher =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("low-stock-push-", 1).factory());
+    private final Duration timeout;
+    private final int queueCapacity;
+
+    public LowStockNotifier(@Value("${app.inventory.low-stock.sse-timeout:PT30M}") Duration timeout,
+                            @Value("${app.inventory.low-stock.subscriber-queue:64}") int queueCapacity) {
+        this.timeout = timeout;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public SseEmitter subscribe(Supplier<List<Inventory>> snapshot) {
+        return register(new SseEmitter(timeout.toMillis()), snapshot);
+    }
+
+    // The snapshot is read when it is sent, after the emitter is registered,
+    // so the client misses no change between the two
+    SseEmitter register(SseEmitter emitter, Supplier<List<Inventory>> snapshot) {
+        Subscriber subscriber = new Subscriber(emitter, new ArrayBlockingQueue<>(queueCapacity));
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        enqueue(subscriber, () -> SseEmitter.event().name(SNAPSHOT_EVENT).data(snapshot.get()));
+        return emitter;
+    }
+
+    public void publish(LowStockChange change) {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, () -> SseEmitter.event().name(CHANGE_EVENT).data(change));
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Finds clients that went away without closing, and keeps proxies from
+    // closing an idle stream. Heartbeats also pile up behind a stalled send,
+    // so a quiet but stuck client is dropped too.
+    @Scheduled(fixedDelayString = "${app.inventory.low-stock.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, () -> SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pusher.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter().complete();
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, Supplier<SseEmitter.SseEventBuilder> event) {
+        if (!subscriber.queue().offer(event)) {
+            drop(subscriber, "fell " + queueCapacity + " events behind");
+            return;
+        }
+        if (subscriber.sending().compareAndSet(false, true)) {
+            pusher.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Sends until the queue is empty, one drain per subscriber at a time
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            Supplier<SseEmitter.SseEventBuilder> event = subscriber.queue().poll();
+            if (event == null) {
+                subscriber.sending().set(false);
+                // An event queued after the poll but before the flag was cleared
+                if (subscriber.queue().isEmpty() || !subscriber.sending().compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            if (!subscribers.contains(subscriber)) {
+                return;
+            }
+            try {
+                subscriber.emitter().send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(subscriber);
+                subscriber.queue().clear();
+                log.debug("Dropped low-stock subscriber: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.queue().clear();
+        log.info("Dropped low-stock subscriber that {}", reason);
+        // Completing waits for a send stuck on the connection, so not on the caller's thread
+        pusher.execute(() -> subscriber.emitter().complete());
+    }
+
+    private record Subscriber(SseEmitter emitter,
+                              BlockingQueue<Supplier<SseEmitter.SseEventBuilder>> queue,
+                              AtomicBoolean sending) {
+
+        Subscriber(SseEmitter emitter, BlockingQueue<Supplier<SseEmitter.SseEventBuilder>> queue) {
+            this(emitter, queue, new AtomicBoolean());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.LowStockChange;
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Stock level of every item, kept in memory and moved by the same events as
+// the search index. An item is low while its quantity is below its reorder
+// level (or the default one when it has none). Changes that touch the
+// low-stock list are pushed to subscribers.
+@Slf4j
+@Component
+public class LowStockTracker {
+
+    private static final Comparator<Inventory> BY_NAME =
+            Comparator.comparing(Inventory::getItemName).thenComparing(Inventory::getId);
+
+    private final InventoryRepository inventoryRepository;
+    private final LowStockNotifier notifier;
+    private final int defaultReorderLevel;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Inventory> items = new HashMap<>();
+    private final Map<String, Long> idsByKey = new HashMap<>();
+
+    public LowStockTracker(InventoryRepository inventoryRepository,
+                           LowStockNotifier notifier,
+                           @Value("${app.inventory.default-reorder-level:10}") int defaultReorderLevel) {
+        this.inventoryRepository = inventoryRepository;
+        this.notifier = notifier;
+        this.defaultReorderLevel = defaultReorderLevel;
+    }
+
+    @PostConstruct
+    public void load() {
+        List<Inventory> all = inventoryRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            items.clear();
+            idsByKey.clear();
+            for (Inventory inventory : all) {
+                put(InventoryChangedEvent.copyOf(inventory));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Low-stock tracker loaded {} items", all.size());
+    }
+
+    public List<Inventory> getLowStock() {
+        return select(true);
+    }
+
+    public List<Inventory> getSufficientStock() {
+        return select(false);
+    }
+
+    public SseEmitter subscribe() {
+        return notifier.subscribe(this::getLowStock);
+    }
+
+    public int reorderLevel(Inventory inventory) {
+        return inventory.getReorderLevel() != null ? inventory.getReorderLevel() : defaultReorderLevel;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            Inventory before = find(event.getItemName(), event.getCategory(), event.getInventory());
+            // A later write of the row was applied first
+            if (before != null && event.getType() != InventoryChangedEvent.Type.DELETED && event.isOlderThan(before)) {
+                return;
+            }
+            Inventory after = switch (event.getType()) {
+                case UPSERTED -> event.getInventory();
+                case DELETED -> null;
+                case STOCK_ADJUSTED -> adjusted(before, event);
+            };
+
+            if (before != null) {
+                remove(before);
+            }
+            if (after != null) {
+                put(after);
+            }
+            // Publish under the lock so subscribers see changes in the order they were applied
+            notifyIfLowStockChanged(before, after);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void notifyIfLowStockChanged(Inventory before, Inventory after) {
+        boolean wasLow = before != null && isLow(before);
+        boolean isLow = after != null && isLow(after);
+        if (!wasLow && !isLow) {
+            return;
+        }
+        Inventory item = after != null ? after : before;
+        notifier.publish(new LowStockChange(item, reorderLevel(item), isLow, wasLow != isLow));
+    }
+
+    private List<Inventory> select(boolean low) {
+        lock.readLock().lock();
+        try {
+            List<Inventory> result = new ArrayList<>();
+            for (Inventory inventory : items.values()) {
+                if (isLow(inventory) == low) {
+                    result.add(inventory);
+                }
+            }
+            result.sort(BY_NAME);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isLow(Inventory inventory) {
+        return inventory.getQuantity() < reorderLevel(inventory);
+    }
+
+    private Inventory find(String itemName, String category, Inventory written) {
+        if (written != null && items.containsKey(written.getId())) {
+            return items.get(written.getId());
+        }
+        Long id = idsByKey.get(key(itemName, category));
+        return id == null ? null : items.get(id);
+    }
+
+    private static Inventory adjusted(Inventory before, InventoryChangedEvent event) {
+        if (before == null) {
+            return null;
+        }
+        Inventory after = InventoryChangedEvent.copyOf(before);
+        after.setQuantity(event.getQuantity());
+        after.setVersion(event.getVersion());
+        return after;
+    }
+
+    private void put(Inventory inventory) {
+        items.put(inventory.getId(), inventory);
+        idsByKey.put(key(inventory.getItemName(), inventory.getCategory()), inventory.getId());
+    }
+
+    private void remove(Inventory inventory) {
+        items.remove(inventory.getId());
+        idsByKey.remove(key(inventory.getItemName(), inventory.getCategory()));
+    }
+
+    private static String key(String itemName, String category) {
+        return itemName + '\u0000' + category;
+    }
+}
@@ -0,0 +1,212 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.constants.ReportJobStatus;
+import com.omar.isdb62.pharmacy_management_backend.dto.InvoiceHistoryReportFilter;
+import com.omar.isdb62.pharmacy_management_backend.dto.ReportJobResponse;
+import com.omar.isdb62.pharmacy_management_backend.exception.ReportQueueFullException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Runs report generation off the request threads. Jobs go through a small
+// bounded executor, the PDFs land in a local directory and are removed again
+// some time after the job has finished. Job state is guarded by a
+// ReentrantLock rather than synchronized: status changes are made from
+// request threads, which may be virtual, and the DONE transition moves a file.
+@Slf4j
+@Service
+public class ReportJobService {
+
+    private final JasperReportService jasperReportService;
+    private final ThreadPoolExecutor executor;
+    private final Path outputDir;
+    private final Duration retention;
+    private final int queueCapacity;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ReportJobService(JasperReportService jasperReportService,
+                            @Value("${app.reports.jobs.threads:2}") int threads,
+                            @Value("${app.reports.jobs.queue-capacity:20}") int queueCapacity,
+                            @Value("${app.reports.jobs.dir:${java.io.tmpdir}/pms-report-jobs}") Path outputDir,
+                            @Value("${app.reports.jobs.retention:PT1H}") Duration retention) throws IOException {
+        this.jasperReportService = jasperReportService;
+        this.outputDir = Files.createDirectories(outputDir);
+        this.retention = retention;
+        this.queueCapacity = queueCapacity;
+
+        // Platform threads even with virtual threads on: Jasper's swap file
+        // virtualizer does its IO inside synchronized and would pin carriers
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "report-job-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public ReportJobResponse submitInvoiceHistory(InvoiceHistoryReportFilter filter) {
+        Job job = new Job(UUID.randomUUID().toString(), ReportTemplateRegistry.INVOICE_HISTORY);
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job, out -> jasperReportService.writeInvoiceHistoryReport(filter, out)));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new ReportQueueFullException(queueCapacity);
+        }
+        return job.toResponse();
+    }
+
+    public Optional<ReportJobResponse> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toResponse);
+    }
+
+    // The finished PDF, empty while the job is not DONE
+    public Optional<Path> getOutput(String id) {
+        Job job = jobs.get(id);
+        if (job == null || job.status != ReportJobStatus.DONE) {
+            return Optional.empty();
+        }
+        return Optional.of(job.file);
+    }
+
+    public Optional<ReportJobResponse> cancel(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        job.lock.lock();
+        try {
+            if (!job.status.isFinished()) {
+                job.finish(ReportJobStatus.CANCELLED, null);
+                // Interrupting a running fill makes it stop at the next row
+                job.future.cancel(true);
+                executor.remove((Runnable) job.future);
+            }
+        } finally {
+            job.lock.unlock();
+        }
+        return Optional.of(job.toResponse());
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.jobs.cleanup-interval:PT5M}")
+    public void removeExpiredJobs() {
+        Instant cutoff = Instant.now().minus(retention);
+        for (Job job : jobs.values()) {
+            if (job.status.isFinished() && job.finishedAt.isBefore(cutoff)) {
+                jobs.remove(job.id);
+                deleteQuietly(job.file);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Job job, ReportWriter writer) {
+        job.lock.lock();
+        try {
+            if (job.status != ReportJobStatus.QUEUED) {
+                return;
+            }
+            job.status = ReportJobStatus.RUNNING;
+            job.startedAt = Instant.now();
+        } finally {
+            job.lock.unlock();
+        }
+
+        Path part = outputDir.resolve(job.id + ".pdf.part");
+        Path file = outputDir.resolve(job.id + ".pdf");
+        try {
+            try (OutputStream out = Files.newOutputStream(part)) {
+                writer.write(out);
+            }
+            job.lock.lock();
+            try {
+                if (job.status == ReportJobStatus.RUNNING) {
+                    Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    job.file = file;
+                    job.finish(ReportJobStatus.DONE, null);
+                }
+            } finally {
+                job.lock.unlock();
+            }
+        } catch (Exception e) {
+            job.lock.lock();
+            try {
+                if (job.status == ReportJobStatus.RUNNING) {
+                    log.error("Report job {} failed", job.id, e);
+                    job.finish(ReportJobStatus.FAILED, e.getMessage());
+                }
+            } finally {
+                job.lock.unlock();
+            }
+        } finally {
+            deleteQuietly(part);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete report file {}", path, e);
+        }
+    }
+
+    private interface ReportWriter {
+        void write(OutputStream out) throws Exception;
+    }
+
+    private static class Job {
+        private final String id;
+        private final String report;
+        private final Instant submittedAt = Instant.now();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile ReportJobStatus status = ReportJobStatus.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile String error;
+        private volatile Path file;
+        private volatile Future<?> future;
+
+        Job(String id, String report) {
+            this.id = id;
+            this.report = report;
+        }
+
+        void finish(ReportJobStatus status, String error) {
+            this.status = status;
+            this.error = error;
+            this.finishedAt = Instant.now();
+        }
+
+        ReportJobResponse toResponse() {
+            return new ReportJobResponse(id, report, status, submittedAt, startedAt, finishedAt, error);
+        }
+    }
+}
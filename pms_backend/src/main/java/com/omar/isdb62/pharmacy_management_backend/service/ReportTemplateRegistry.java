@@ -0,0 +1,94 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiled Jasper templates by name. A template is compiled (or loaded from a
+// precompiled .jasper next to the .jrxml) once and then shared by every report
+// request, instead of paying for JasperCompileManager on each download.
+@Slf4j
+@Component
+public class ReportTemplateRegistry {
+
+    public static final String INVOICE_HISTORY = "invoice-history";
+
+    private final Map<String, String> locations = new ConcurrentHashMap<>();
+    private final Map<String, JasperReport> compiled = new ConcurrentHashMap<>();
+
+    public ReportTemplateRegistry() {
+        register(INVOICE_HISTORY, "report/invoice-history.jrxml");
+    }
+
+    // Registers (or replaces) a classpath template, compiled on first use
+    public void register(String name, String location) {
+        locations.put(name, location);
+        compiled.remove(name);
+    }
+
+    public JasperReport get(String name) throws JRException {
+        JasperReport report = compiled.get(name);
+        if (report != null) {
+            return report;
+        }
+        String location = locations.get(name);
+        if (location == null) {
+            throw new JRException("Unknown report template: " + name);
+        }
+        try {
+            return compiled.computeIfAbsent(name, n -> load(location));
+        } catch (JRRuntimeException e) {
+            if (e.getCause() instanceof JRException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Compile everything registered at startup, off the request path
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (String name : locations.keySet()) {
+            try {
+                get(name);
+            } catch (JRException | RuntimeException e) {
+                log.error("Could not compile report template {}", name, e);
+            }
+        }
+    }
+
+    private JasperReport load(String location) {
+        long start = System.nanoTime();
+        try {
+            JasperReport report;
+            ClassPathResource precompiled = new ClassPathResource(location.replaceFirst("\\.jrxml$", ".jasper"));
+            if (location.endsWith(".jrxml") && precompiled.exists()) {
+                try (InputStream in = precompiled.getInputStream()) {
+                    report = (JasperReport) JRLoader.loadObject(in);
+                }
+            } else {
+                try (InputStream in = new ClassPathResource(location).getInputStream()) {
+                    report = JasperCompileManager.compileReport(in);
+                }
+            }
+            log.info("Loaded report template {} in {} ms", location, (System.nanoTime() - start) / 1_000_000);
+            return report;
+        } catch (JRException e) {
+            throw new JRRuntimeException(e);
+        } catch (IOException e) {
+            throw new JRRuntimeException(new JRException("Could not read report template " + location, e));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+-- Schema as it was while hibernate.ddl-auto=update still managed it. Databases
+-- created that way are migrated in place (spring.flyway.baseline-version=0),
+-- so every statement here and in later versions has to be repeatable.
+
+CREATE TABLE IF NOT EXISTS flutter_inventory (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company varchar(255),
+    item_name varchar(255) NOT NULL,
+    category varchar(255) NOT NULL,
+    generic varchar(255),
+    quantity integer NOT NULL,
+    unit_price numeric(10,2) NOT NULL,
+    purchase_discount numeric(10,2),
+    net_purchase_price numeric(10,2),
+    sell_price numeric(10,2) NOT NULL,
+    total_inventory_value numeric(10,2),
+    received_date date
+);
+
+CREATE TABLE IF NOT EXISTS flutter_invoice_history (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    invoice_number varchar(255),
+    customer_name varchar(255),
+    contact_number varchar(255),
+    item_name varchar(255),
+    category varchar(255),
+    quantity integer NOT NULL,
+    unit_price float(53),
+    sub_total float(53),
+    amount float(53) NOT NULL,
+    discount float(53) NOT NULL,
+    discount_amount float(53),
+    net_payable float(53),
+    date date
+);
+
+CREATE TABLE IF NOT EXISTS pms_users (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email varchar(255) NOT NULL UNIQUE,
+    password varchar(255) NOT NULL,
+    role varchar(255) NOT NULL,
+    first_name varchar(255),
+    last_name varchar(255),
+    phone_number varchar(255),
+    salary bigint,
+    created_at timestamp(6),
+    updated_at timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS pms_category (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    category varchar(255) UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS pms_company_name (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    company_name varchar(255) UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS pms_generic_name (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    generic varchar(255) UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS pms_medicine_name (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    medicine_name varchar(255) UNIQUE
+);
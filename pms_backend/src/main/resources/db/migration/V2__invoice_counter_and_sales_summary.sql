@@ -0,0 +1,29 @@
+-- Per-day invoice number counter
+CREATE TABLE IF NOT EXISTS invoice_number_counter (
+    day date PRIMARY KEY,
+    last_value bigint NOT NULL
+);
+
+-- Daily sales rollup, kept up to date by the invoice write paths
+CREATE TABLE IF NOT EXISTS sales_daily_summary (
+    summary_date date NOT NULL,
+    category varchar(255) NOT NULL,
+    item_name varchar(255) NOT NULL,
+    quantity bigint NOT NULL,
+    line_count bigint NOT NULL,
+    sub_total float(53) NOT NULL,
+    amount float(53) NOT NULL,
+    discount_amount float(53) NOT NULL,
+    net_payable float(53) NOT NULL,
+    PRIMARY KEY (summary_date, category, item_name)
+);
+
+-- Fill the rollup from the existing history, once
+INSERT INTO sales_daily_summary (summary_date, category, item_name, quantity, line_count,
+                                 sub_total, amount, discount_amount, net_payable)
+SELECT date, coalesce(category, ''), coalesce(item_name, ''), sum(quantity), count(*),
+       sum(sub_total), sum(amount), sum(discount_amount), sum(net_payable)
+FROM flutter_invoice_history
+WHERE date IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM sales_daily_summary)
+GROUP BY date, coalesce(category, ''), coalesce(item_name, '');
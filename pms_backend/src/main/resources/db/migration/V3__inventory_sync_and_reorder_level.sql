@@ -0,0 +1,16 @@
+-- Delta sync: version (writing transaction id) and time of the last write
+ALTER TABLE flutter_inventory
+    ADD COLUMN IF NOT EXISTS row_version bigint,
+    ADD COLUMN IF NOT EXISTS last_modified timestamp(6),
+    ADD COLUMN IF NOT EXISTS reorder_level integer;
+
+-- Rows written before versions existed sync as version 0
+UPDATE flutter_inventory SET row_version = 0, last_modified = now() WHERE row_version IS NULL;
+
+CREATE TABLE IF NOT EXISTS flutter_inventory_tombstone (
+    id bigint PRIMARY KEY,
+    item_name varchar(255) NOT NULL,
+    category varchar(255) NOT NULL,
+    row_version bigint NOT NULL,
+    deleted_at timestamp(6) NOT NULL
+);
@@ -0,0 +1,39 @@
+-- Ids come from pooled sequences (allocationSize 50 in the @SequenceGenerator
+-- mappings) so Hibernate can batch inserts. The identity default is dropped so
+-- nothing inserts around the sequence, and each sequence is moved to at least
+-- the highest id in use (pooled ids are handed out below nextval, never moved back).
+
+CREATE SEQUENCE IF NOT EXISTS flutter_inventory_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE flutter_inventory ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE flutter_inventory ALTER COLUMN id DROP DEFAULT;
+SELECT setval('flutter_inventory_seq', GREATEST((SELECT coalesce(max(id), 0) FROM flutter_inventory), (SELECT last_value FROM flutter_inventory_seq)));
+
+CREATE SEQUENCE IF NOT EXISTS flutter_invoice_history_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE flutter_invoice_history ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE flutter_invoice_history ALTER COLUMN id DROP DEFAULT;
+SELECT setval('flutter_invoice_history_seq', GREATEST((SELECT coalesce(max(id), 0) FROM flutter_invoice_history), (SELECT last_value FROM flutter_invoice_history_seq)));
+
+CREATE SEQUENCE IF NOT EXISTS pms_users_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE pms_users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE pms_users ALTER COLUMN id DROP DEFAULT;
+SELECT setval('pms_users_seq', GREATEST((SELECT coalesce(max(id), 0) FROM pms_users), (SELECT last_value FROM pms_users_seq)));
+
+CREATE SEQUENCE IF NOT EXISTS pms_category_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE pms_category ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE pms_category ALTER COLUMN id DROP DEFAULT;
+SELECT setval('pms_category_seq', GREATEST((SELECT coalesce(max(id), 0) FROM pms_category), (SELECT last_value FROM pms_category_seq)));
+
+CREATE SEQUENCE IF NOT EXISTS pms_company_name_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE pms_company_name ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE pms_company_name ALTER COLUMN id DROP DEFAULT;
+SELECT setval('pms_company_name_seq', GREATEST((SELECT coalesce(max(id), 0) FROM pms_company_name), (SELECT last_value FROM pms_company_name_seq)));
+
+CREATE SEQUENCE IF NOT EXISTS pms_generic_name_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE pms_generic_name ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE pms_generic_name ALTER COLUMN id DROP DEFAULT;
+SELECT setval('pms_generic_name_seq', GREATEST((SELECT coalesce(max(id), 0) FROM pms_generic_name), (SELECT last_value FROM pms_generic_name_seq)));
+
+CREATE SEQUENCE IF NOT EXISTS pms_medicine_name_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE pms_medicine_name ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE pms_medicine_name ALTER COLUMN id DROP DEFAULT;
+SELECT setval('pms_medicine_name_seq', GREATEST((SELECT coalesce(max(id), 0) FROM pms_medicine_name), (SELECT last_value FROM pms_medicine_name_seq)));
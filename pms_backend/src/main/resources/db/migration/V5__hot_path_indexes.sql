@@ -0,0 +1,33 @@
+-- Indexes for the derived and hand-written queries in InventoryRepository,
+-- InvoiceHistoryRepository and the sync/paging paths.
+
+-- One row per item and category: findByItemNameAndCategory and the bulk
+-- receive upsert (ON CONFLICT (item_name, category)). Checked first so a
+-- database with duplicates fails with a readable message.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM flutter_inventory GROUP BY item_name, category HAVING count(*) > 1) THEN
+        RAISE EXCEPTION 'flutter_inventory has more than one row for the same item_name and category, merge them before migrating';
+    END IF;
+END $$;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_flutter_inventory_item_name_category
+    ON flutter_inventory (item_name, category);
+
+-- Keyset pagination and findAllByOrderByItemNameAsc
+CREATE INDEX IF NOT EXISTS idx_flutter_inventory_item_name_id ON flutter_inventory (item_name, id);
+
+-- Low / sufficient stock (findByQuantityLessThan, findByQuantityGreaterThanEqual)
+CREATE INDEX IF NOT EXISTS idx_flutter_inventory_quantity ON flutter_inventory (quantity);
+
+-- findByReceivedDate
+CREATE INDEX IF NOT EXISTS idx_flutter_inventory_received_date ON flutter_inventory (received_date);
+
+-- Delta sync (changed-since)
+CREATE INDEX IF NOT EXISTS idx_flutter_inventory_row_version ON flutter_inventory (row_version);
+CREATE INDEX IF NOT EXISTS idx_flutter_inventory_tombstone_row_version ON flutter_inventory_tombstone (row_version);
+
+-- findByInvoiceNumber (invoice lookup, update and delete by number)
+CREATE INDEX IF NOT EXISTS idx_flutter_invoice_history_invoice_number ON flutter_invoice_history (invoice_number);
+
+-- findByDate, report date ranges and the export
+CREATE INDEX IF NOT EXISTS idx_flutter_invoice_history_date ON flutter_invoice_history (date);
@@ -0,0 +1,72 @@
+-- Invoice history becomes a table range-partitioned by month on date, so
+-- queries with a date bound only touch the months they need and old months
+-- can be detached without rewriting anything. Partitions are named
+-- flutter_invoice_history_yyyy_mm, InvoicePartitionMaintainer keeps creating
+-- the upcoming ones.
+
+-- The partition key is part of the primary key and cannot be null. Lines
+-- written without a date take the date encoded in their INV-yyyyMMdd-NNNN number.
+UPDATE flutter_invoice_history
+SET date = to_date(substring(invoice_number FROM 5 FOR 8), 'YYYYMMDD')
+WHERE date IS NULL AND invoice_number ~ '^INV-\d{8}-';
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM flutter_invoice_history WHERE date IS NULL) THEN
+        RAISE EXCEPTION 'flutter_invoice_history has lines without a date, set one before migrating';
+    END IF;
+END $$;
+
+ALTER TABLE flutter_invoice_history RENAME TO flutter_invoice_history_unpartitioned;
+ALTER TABLE flutter_invoice_history_unpartitioned
+    RENAME CONSTRAINT flutter_invoice_history_pkey TO flutter_invoice_history_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_flutter_invoice_history_invoice_number;
+DROP INDEX IF EXISTS idx_flutter_invoice_history_date;
+
+CREATE TABLE flutter_invoice_history (
+    id bigint NOT NULL,
+    invoice_number varchar(255),
+    customer_name varchar(255),
+    contact_number varchar(255),
+    item_name varchar(255),
+    category varchar(255),
+    quantity integer NOT NULL,
+    unit_price float(53),
+    sub_total float(53),
+    amount float(53) NOT NULL,
+    discount float(53) NOT NULL,
+    discount_amount float(53),
+    net_payable float(53),
+    date date NOT NULL,
+    CONSTRAINT flutter_invoice_history_pkey PRIMARY KEY (id, date)
+) PARTITION BY RANGE (date);
+
+-- Created on the parent, so every partition gets them
+CREATE INDEX idx_flutter_invoice_history_invoice_number ON flutter_invoice_history (invoice_number);
+CREATE INDEX idx_flutter_invoice_history_date ON flutter_invoice_history (date);
+
+-- Every month that has lines, and at least three months ahead
+DO $$
+DECLARE
+    month date := date_trunc('month', least(
+            (SELECT min(date) FROM flutter_invoice_history_unpartitioned), current_date))::date;
+    last_month date := date_trunc('month', greatest(
+            (SELECT max(date) FROM flutter_invoice_history_unpartitioned), current_date + interval '3 months'))::date;
+BEGIN
+    WHILE month <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF flutter_invoice_history FOR VALUES FROM (%L) TO (%L)',
+                       'flutter_invoice_history_' || to_char(month, 'YYYY_MM'),
+                       month, (month + interval '1 month')::date);
+        month := (month + interval '1 month')::date;
+    END LOOP;
+END $$;
+
+INSERT INTO flutter_invoice_history (id, invoice_number, customer_name, contact_number, item_name, category,
+                                     quantity, unit_price, sub_total, amount, discount, discount_amount,
+                                     net_payable, date)
+SELECT id, invoice_number, customer_name, contact_number, item_name, category,
+       quantity, unit_price, sub_total, amount, discount, discount_amount,
+       net_payable, date
+FROM flutter_invoice_history_unpartitioned;
+
+DROP TABLE flutter_invoice_history_unpartitioned;
@@ -0,0 +1,2 @@
+-- Optimistic lock for JPA read-modify-write on inventory rows
+ALTER TABLE flutter_inventory ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,63 @@
+-- Invoice headers. What every line of an invoice used to repeat (number,
+-- customer, contact, discount) moves to flutter_invoice together with the
+-- invoice totals, lines point at their header through invoice_id.
+
+CREATE SEQUENCE IF NOT EXISTS flutter_invoice_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS flutter_invoice (
+    id bigint NOT NULL,
+    invoice_number varchar(255) NOT NULL,
+    customer_name varchar(255),
+    contact_number varchar(255),
+    discount float(53) NOT NULL,
+    date date NOT NULL,
+    line_count integer NOT NULL,
+    quantity bigint NOT NULL,
+    sub_total float(53) NOT NULL,
+    amount float(53) NOT NULL,
+    discount_amount float(53) NOT NULL,
+    net_payable float(53) NOT NULL,
+    CONSTRAINT flutter_invoice_pkey PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_flutter_invoice_invoice_number ON flutter_invoice (invoice_number);
+CREATE INDEX IF NOT EXISTS idx_flutter_invoice_date ON flutter_invoice (date, id);
+
+-- One header per invoice number, customer fields from its first line. The
+-- header date is the earliest line date, so lines can be looked up from it.
+INSERT INTO flutter_invoice (id, invoice_number, customer_name, contact_number, discount, date,
+                             line_count, quantity, sub_total, amount, discount_amount, net_payable)
+SELECT nextval('flutter_invoice_seq'), first.invoice_number, first.customer_name, first.contact_number,
+       first.discount, totals.date, totals.line_count, totals.quantity, totals.sub_total, totals.amount,
+       totals.discount_amount, totals.net_payable
+FROM (SELECT DISTINCT ON (invoice_number) invoice_number, customer_name, contact_number, discount
+      FROM flutter_invoice_history
+      WHERE invoice_number IS NOT NULL
+      ORDER BY invoice_number, id) first
+JOIN (SELECT invoice_number, min(date) AS date, count(*) AS line_count, sum(quantity) AS quantity,
+             coalesce(sum(sub_total), 0) AS sub_total, sum(amount) AS amount,
+             coalesce(sum(discount_amount), 0) AS discount_amount, coalesce(sum(net_payable), 0) AS net_payable
+      FROM flutter_invoice_history
+      WHERE invoice_number IS NOT NULL
+      GROUP BY invoice_number) totals USING (invoice_number)
+ON CONFLICT (invoice_number) DO NOTHING;
+
+ALTER TABLE flutter_invoice_history ADD COLUMN IF NOT EXISTS invoice_id bigint;
+
+UPDATE flutter_invoice_history l
+SET invoice_id = f.id
+FROM flutter_invoice f
+WHERE f.invoice_number = l.invoice_number;
+
+-- Created on the parent, so every partition gets it
+CREATE INDEX IF NOT EXISTS idx_flutter_invoice_history_invoice_id ON flutter_invoice_history (invoice_id, date);
+
+ALTER TABLE flutter_invoice_history
+    ADD CONSTRAINT fk_flutter_invoice_history_invoice FOREIGN KEY (invoice_id) REFERENCES flutter_invoice (id);
+
+-- Takes idx_flutter_invoice_history_invoice_number with it
+ALTER TABLE flutter_invoice_history
+    DROP COLUMN IF EXISTS invoice_number,
+    DROP COLUMN IF EXISTS customer_name,
+    DROP COLUMN IF EXISTS contact_number,
+    DROP COLUMN IF EXISTS discount;
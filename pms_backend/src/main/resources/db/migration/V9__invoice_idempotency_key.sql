@@ -0,0 +1,13 @@
+-- Idempotency-Key of each checkout, so a retried POST /api/invoice/create
+-- returns the invoice of the first attempt. The fingerprint is the SHA-256 of
+-- the request, rows older than app.invoice.idempotency.ttl are deleted.
+
+CREATE TABLE IF NOT EXISTS invoice_idempotency_key (
+    idempotency_key varchar(255) NOT NULL,
+    fingerprint bytea NOT NULL,
+    invoice_number varchar(255),
+    created_at timestamptz NOT NULL,
+    CONSTRAINT invoice_idempotency_key_pkey PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_invoice_idempotency_key_created_at ON invoice_idempotency_key (created_at);
@@ -0,0 +1,68 @@
+package com.omar.isdb62.pharmacy_management_backend;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+// Base for tests that need a real PostgreSQL. By default one container is
+// started for the whole run (so cached Spring contexts keep a valid
+// connection) and the tests are skipped when Docker is not available.
+//
+// To run against a local server instead, point them at an empty scratch
+// database (the migrations run on it and the tests leave data behind):
+//   mvn test -Dtest.postgres.url=jdbc:postgresql://localhost:5432/pms_test \
+//            -Dtest.postgres.username=postgres -Dtest.postgres.password=1234
+@SpringBootTest
+@ExtendWith(PostgresIntegrationTest.DatabaseAvailable.class)
+public abstract class PostgresIntegrationTest {
+
+    private static final String LOCAL_URL = System.getProperty("test.postgres.url");
+
+    private static PostgreSQLContainer<?> postgres;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", PostgresIntegrationTest::jdbcUrl);
+        registry.add("spring.datasource.username", PostgresIntegrationTest::username);
+        registry.add("spring.datasource.password", PostgresIntegrationTest::password);
+    }
+
+    protected static String jdbcUrl() {
+        return LOCAL_URL != null ? LOCAL_URL : container().getJdbcUrl();
+    }
+
+    protected static String username() {
+        return LOCAL_URL != null ? System.getProperty("test.postgres.username", "postgres") : container().getUsername();
+    }
+
+    protected static String password() {
+        return LOCAL_URL != null ? System.getProperty("test.postgres.password", "") : container().getPassword();
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (postgres == null) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+        }
+        return postgres;
+    }
+
+    static class DatabaseAvailable implements ExecutionCondition {
+
+        @Override
+        public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+            if (LOCAL_URL != null) {
+                return ConditionEvaluationResult.enabled("Using " + LOCAL_URL);
+            }
+            return DockerClientFactory.instance().isDockerAvailable()
+                    ? ConditionEvaluationResult.enabled("Docker is available")
+                    : ConditionEvaluationResult.disabled("Neither Docker nor -Dtest.postgres.url is available");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.omar.isdb62.pharmacy_management_backend;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The context only starts if the migrated schema matches the entity mappings
+@Slf4j
+@TestPropertySource(properties = "spring.jpa.hibernate.ddl-auto=validate")
+class SchemaMigrationTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createsTheHotPathIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE schemaname = 'public'", String.class);
+
+        assertThat(indexes).contains(
+                "uk_flutter_inventory_item_name_category",
+                "idx_flutter_inventory_item_name_id",
+                "idx_flutter_inventory_quantity",
+                "idx_flutter_inventory_received_date",
+                "idx_flutter_inventory_row_version",
+                "idx_flutter_inventory_tombstone_row_version",
+                "uk_flutter_invoice_invoice_number",
+                "idx_flutter_invoice_date",
+                "idx_flutter_invoice_history_invoice_id",
+                "idx_flutter_invoice_history_date");
+    }
+
+    @Test
+    void idsComeOnlyFromTheSequences() {
+        Integer identityColumns = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.columns " +
+                "WHERE table_schema = 'public' AND (is_identity = 'YES' OR column_default IS NOT NULL) AND column_name = 'id'",
+                Integer.class);
+
+        assertThat(identityColumns).isZero();
+    }
+
+    // Start-up time against an up to date schema, Hibernate schema update vs
+    // validate vs migrations only:
+    //   mvn test -Dtest=SchemaMigrationTest -Dschema.benchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "schema.benchmark", matches = "true")
+    void compareStartupTimes() throws Exception {
+        int runs = Integer.getInteger("schema.benchmark.runs", 5);
+        Path keyring = Files.createTempDirectory("pms-keyring").resolve("keyring.properties");
+
+        Map<String, Long> averageMs = new HashMap<>();
+        for (String mode : List.of("update", "validate", "none")) {
+            start(mode, keyring).close();
+            long total = 0;
+            for (int i = 0; i < runs; i++) {
+                long started = System.nanoTime();
+                start(mode, keyring).close();
+                total += System.nanoTime() - started;
+            }
+            averageMs.put(mode, total / runs / 1_000_000);
+            log.info("ddl-auto={}{}: {} ms average over {} starts", mode,
+                    mode.equals("none") ? " (Flyway)" : "", averageMs.get(mode), runs);
+        }
+        // Checking applied migrations is cheaper than introspecting every table
+        assertThat(averageMs.get("none")).isLessThan(averageMs.get("update"));
+    }
+
+    private static ConfigurableApplicationContext start(String ddlAuto, Path keyring) {
+        return new SpringApplicationBuilder(PharmacyManagementBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + jdbcUrl(),
+                        "spring.datasource.username=" + username(),
+                        "spring.datasource.password=" + password(),
+                        "spring.jpa.hibernate.ddl-auto=" + ddlAuto,
+                        "spring.jpa.show-sql=false",
+                        "spring.flyway.enabled=" + ddlAuto.equals("none"),
+                        "app.jwt.keyring-file=" + keyring)
+                .run();
+    }
+}
@@ -0,0 +1,131 @@
+package com.omar.isdb62.pharmacy_management_backend;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Request throughput and latency with platform request threads vs the
+// virtual-threads profile, under more concurrent clients than Tomcat has
+// threads. The mix is catalog reads plus some PDF report downloads, which
+// keep a request thread (and a connection) busy for a while:
+//   mvn test -Dtest=ThreadModelLoadTest -Dthreads.benchmark=true \
+//            -Dthreads.benchmark.clients=1000 -Dthreads.benchmark.requests=20
+@Slf4j
+class ThreadModelLoadTest extends PostgresIntegrationTest {
+
+    private static final String[] PATHS = {
+            "/api/inventory/page?size=50",
+            "/api/inventory/search?name=na",
+            "/api/inventory/page?size=50",
+            "/api/inventory/search?name=na",
+            "/api/inventory/page?size=50",
+            "/api/inventory/search?name=na",
+            "/api/inventory/page?size=50",
+            "/api/inventory/search?name=na",
+            "/api/invoice/headers?from=" + LocalDate.now(),
+            "/reports/invoice-history?from=" + LocalDate.now()};
+
+    @Test
+    @EnabledIfSystemProperty(named = "threads.benchmark", matches = "true")
+    void comparePlatformAndVirtualThreads() throws Exception {
+        int clients = Integer.getInteger("threads.benchmark.clients", 1000);
+        int requests = Integer.getInteger("threads.benchmark.requests", 20);
+        Path keyring = Files.createTempDirectory("pms-keyring").resolve("keyring.properties");
+
+        for (String profile : List.of("default", "virtual-threads")) {
+            try (ConfigurableApplicationContext context = start(profile, keyring)) {
+                String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                load(base, 50, 10);
+                Result result = load(base, clients, requests);
+                log.info("{}: {} clients x {} requests, {} req/s, p50 {} ms, p99 {} ms, {} failed",
+                        profile, clients, requests, Math.round(result.throughput()), result.percentile(50),
+                        result.percentile(99), result.failed());
+            }
+        }
+    }
+
+    private static Result load(String base, int clients, int requests) throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long[] latencies = new long[clients * requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        long started = System.nanoTime();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < requests; i++) {
+                        HttpRequest request = HttpRequest.newBuilder(
+                                        URI.create(base + PATHS[(client + i) % PATHS.length]))
+                                .timeout(Duration.ofMinutes(2))
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                failed.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failed.incrementAndGet();
+                        }
+                        latencies[next.getAndIncrement()] = System.nanoTime() - sent;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return new Result(latencies, System.nanoTime() - started, failed.get());
+    }
+
+    private static ConfigurableApplicationContext start(String profile, Path keyring) {
+        return new SpringApplicationBuilder(PharmacyManagementBackendApplication.class)
+                .profiles(profile)
+                .properties(
+                        "spring.datasource.url=" + jdbcUrl(),
+                        "spring.datasource.username=" + username(),
+                        "spring.datasource.password=" + password(),
+                        "spring.jpa.show-sql=false",
+                        "server.port=0",
+                        "app.jwt.keyring-file=" + keyring)
+                .run();
+    }
+
+    private record Result(long[] latencies, long elapsedNanos, int failed) {
+
+        double throughput() {
+            return latencies.length * 1e9 / elapsedNanos;
+        }
+
+        long percentile(int p) {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, sorted.length * p / 100)] / 1_000_000;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.omar.isdb62.pharmacy_management_backend.benchmark;
+
+import com.omar.isdb62.pharmacy_management_backend.configaration.JwtAuthenticationFilter;
+import com.omar.isdb62.pharmacy_management_backend.configaration.JwtKeyRing;
+import com.omar.isdb62.pharmacy_management_backend.configaration.JwtTokenProvider;
+import com.omar.isdb62.pharmacy_management_backend.model.CustomUserDetails;
+import com.omar.isdb62.pharmacy_management_backend.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of the JWT filter for an authenticated request:
+//   legacyDoubleParse - what the filter did before: validate, then parse again, new parser each time
+//   filterUncached    - one parse per request with the prebuilt parser
+//   filterCached      - one parse per token, then served from the verified token cache
+// Run with: mvn test-compile && java -cp "target/test-classes:target/classes:<test classpath>" \
+//   com.omar.isdb62.pharmacy_management_backend.benchmark.JwtFilterBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtFilterBenchmark {
+
+    private String token;
+    private SecretKey secretKey;
+    private JwtAuthenticationFilter uncachedFilter;
+    private JwtAuthenticationFilter cachedFilter;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path keyring = Files.createTempDirectory("jwt-bench").resolve("keyring.properties");
+        JwtKeyRing keyRing = new JwtKeyRing(keyring.toString(), 3_600_000);
+        keyRing.init();
+        JwtTokenProvider uncached = provider(keyRing, 0);
+        JwtTokenProvider cached = provider(keyRing, 10_000);
+
+        User user = new User("bench@pms.local", "secret", "ADMIN", "Bench", "User", null, null);
+        user.setId(1L);
+        CustomUserDetails principal = new CustomUserDetails(user);
+        token = uncached.createToken(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+        secretKey = keyRing.activeKey();
+
+        uncachedFilter = new JwtAuthenticationFilter(uncached, null);
+        cachedFilter = new JwtAuthenticationFilter(cached, null);
+    }
+
+    @Benchmark
+    public Claims legacyDoubleParse() {
+        Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token);
+        return Jwts.parserBuilder().setSigningKey(secretKey).build().parseClaimsJws(token).getBody();
+    }
+
+    @Benchmark
+    public Object filterUncached() throws Exception {
+        return runFilter(uncachedFilter);
+    }
+
+    @Benchmark
+    public Object filterCached() throws Exception {
+        return runFilter(cachedFilter);
+    }
+
+    private Object runFilter(JwtAuthenticationFilter filter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/inventory/all");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    private static JwtTokenProvider provider(JwtKeyRing keyRing, int cacheSize) {
+        JwtTokenProvider provider = new JwtTokenProvider(keyRing, cacheSize);
+        ReflectionTestUtils.setField(provider, "jwtExpirationMs", 3_600_000);
+        return provider;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtFilterBenchmark.class.getSimpleName()).build()).run();
+    }
+}
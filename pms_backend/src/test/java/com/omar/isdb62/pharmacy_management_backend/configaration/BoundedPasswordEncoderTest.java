@@ -0,0 +1,80 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import com.omar.isdb62.pharmacy_management_backend.exception.PasswordHashingBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedPasswordEncoderTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        encoder.close();
+    }
+
+    @Test
+    void hashesOnItsOwnThreads() {
+        encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, meterRegistry);
+
+        String hash = encoder.encode("secret");
+
+        assertThat(encoder.matches("secret", hash)).isTrue();
+        assertThat(encoder.matches("wrong", hash)).isFalse();
+        assertThat(meterRegistry.timer("auth.password.hash", "operation", "encode").count()).isEqualTo(1);
+        assertThat(meterRegistry.timer("auth.password.hash", "operation", "matches").count()).isEqualTo(2);
+    }
+
+    @Test
+    void refusesHashesBeyondTheQueue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        encoder = new BoundedPasswordEncoder(new Blocking(started, release), 1, 1, meterRegistry);
+
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        while (encoder.getQueueDepth() == 0) {
+            Thread.sleep(5);
+        }
+
+        assertThatThrownBy(() -> encoder.encode("c")).isInstanceOf(PasswordHashingBusyException.class);
+        assertThat(meterRegistry.counter("auth.password.hash.rejected").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("auth.password.hash.queue").gauge().value()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(running).succeedsWithin(5, TimeUnit.SECONDS);
+        assertThat(queued).succeedsWithin(5, TimeUnit.SECONDS);
+    }
+
+    // Holds every hash until released
+    private record Blocking(CountDownLatch started, CountDownLatch release) implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConflictRetryAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ConflictRetryAspect aspect;
+    private Stock target;
+    private Stock stock;
+
+    @BeforeEach
+    void setUp() {
+        aspect = new ConflictRetryAspect(meterRegistry, 3, Duration.ofMillis(1), Duration.ofMillis(4));
+        AspectJProxyFactory factory = new AspectJProxyFactory(target = new Stock());
+        factory.addAspect(aspect);
+        stock = factory.getProxy();
+    }
+
+    @Test
+    void retriesUntilTheWriteGoesThrough() {
+        target.conflictsLeft.set(2);
+
+        assertThat(stock.receive()).isEqualTo(3);
+        assertThat(meterRegistry.counter("db.writes", "operation", "receive").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("db.write.conflicts", "operation", "receive").count()).isEqualTo(2);
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        target.conflictsLeft.set(10);
+
+        assertThatThrownBy(stock::receive).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(target.attempts.get()).isEqualTo(3);
+        assertThat(meterRegistry.counter("db.write.exhausted", "operation", "receive").count()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        assertThatThrownBy(stock::fail).isInstanceOf(IllegalStateException.class);
+        assertThat(target.attempts.get()).isEqualTo(1);
+    }
+
+    @Test
+    void jitterStaysUnderTheGrowingCap() {
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(aspect.delayNanos(1)).isBetween(0L, Duration.ofMillis(1).toNanos());
+            assertThat(aspect.delayNanos(2)).isBetween(0L, Duration.ofMillis(2).toNanos());
+            assertThat(aspect.delayNanos(30)).isBetween(0L, Duration.ofMillis(4).toNanos());
+        }
+    }
+
+    static class Stock {
+        final AtomicInteger conflictsLeft = new AtomicInteger();
+        final AtomicInteger attempts = new AtomicInteger();
+
+        @RetryOnConflict
+        public int receive() {
+            int attempt = attempts.incrementAndGet();
+            if (conflictsLeft.getAndDecrement() > 0) {
+                throw new ObjectOptimisticLockingFailureException("Inventory", 1L);
+            }
+            return attempt;
+        }
+
+        @RetryOnConflict
+        public void fail() {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("Not a conflict");
+        }
+    }
+}
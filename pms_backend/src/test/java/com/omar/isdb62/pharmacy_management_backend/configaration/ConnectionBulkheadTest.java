@@ -0,0 +1,65 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ConnectionBulkheadTest {
+
+    private final CountDownLatch poolFree = new CountDownLatch(1);
+    private final CountDownLatch waiting = new CountDownLatch(2);
+
+    // A pool with no free connection until poolFree opens
+    private final AbstractDataSource pool = new AbstractDataSource() {
+        @Override
+        public Connection getConnection() {
+            waiting.countDown();
+            try {
+                poolFree.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return mock(Connection.class);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return getConnection();
+        }
+    };
+
+    @Test
+    void turnsAwayThreadsBeyondTheCap() throws Exception {
+        ConnectionBulkhead bulkhead = new ConnectionBulkhead(pool, 2);
+        CompletableFuture<Connection> first = CompletableFuture.supplyAsync(() -> connect(bulkhead));
+        CompletableFuture<Connection> second = CompletableFuture.supplyAsync(() -> connect(bulkhead));
+        assertThat(waiting.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(bulkhead.getWaiting()).isEqualTo(2);
+        assertThatThrownBy(bulkhead::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        assertThat(bulkhead.getRejected()).isEqualTo(1);
+
+        poolFree.countDown();
+        assertThat(first).succeedsWithin(5, TimeUnit.SECONDS);
+        assertThat(second).succeedsWithin(5, TimeUnit.SECONDS);
+        assertThat(bulkhead.getWaiting()).isZero();
+        assertThat(bulkhead.getConnection()).isNotNull();
+    }
+
+    private static Connection connect(ConnectionBulkhead bulkhead) {
+        try {
+            return bulkhead.getConnection();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
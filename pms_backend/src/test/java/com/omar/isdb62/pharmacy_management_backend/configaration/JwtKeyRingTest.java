@@ -0,0 +1,133 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import com.omar.isdb62.pharmacy_management_backend.model.CustomUserDetails;
+import com.omar.isdb62.pharmacy_management_backend.model.User;
+import io.jsonwebtoken.Claims;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two nodes in one JVM sharing a key file, as two instances behind a load balancer would
+class JwtKeyRingTest {
+
+    @TempDir
+    Path dir;
+
+    private ApplicationContextRunner node() {
+        return new ApplicationContextRunner()
+                .withUserConfiguration(JwtKeyRing.class, JwtTokenProvider.class)
+                .withPropertyValues(
+                        "app.jwt.keyring-file=" + dir.resolve("jwt-keyring.properties"),
+                        "app.jwt.expiration=3600000");
+    }
+
+    @Test
+    void tokensFromOneNodeVerifyOnTheOther() {
+        node().run(a -> node().run(b -> {
+            String token = provider(a).createToken(auth("a@pms.local"));
+
+            assertThat(provider(b).parseToken(token)).map(Claims::getSubject).contains("a@pms.local");
+            assertThat(a.getBean(JwtKeyRing.class).activeKid()).isEqualTo(b.getBean(JwtKeyRing.class).activeKid());
+        }));
+    }
+
+    @Test
+    void tokensSurviveARestart() {
+        String[] token = new String[1];
+        node().run(a -> token[0] = provider(a).createToken(auth("a@pms.local")));
+
+        node().run(restarted -> assertThat(provider(restarted).parseToken(token[0])).isPresent());
+    }
+
+    @Test
+    void rotationKeepsOldTokensValidAndOtherNodesPickUpTheNewKey() {
+        node().run(a -> node().run(b -> {
+            String before = provider(a).createToken(auth("a@pms.local"));
+            String oldKid = a.getBean(JwtKeyRing.class).activeKid();
+
+            a.getBean(JwtKeyRing.class).rotate();
+            String after = provider(a).createToken(auth("a@pms.local"));
+
+            assertThat(a.getBean(JwtKeyRing.class).activeKid()).isNotEqualTo(oldKid);
+            // b hasn't reloaded yet, the unknown kid makes it look at the file
+            assertThat(provider(b).parseToken(after)).isPresent();
+            assertThat(provider(b).parseToken(before)).isPresent();
+            assertThat(provider(a).parseToken(before)).isPresent();
+            assertThat(b.getBean(JwtKeyRing.class).activeKid()).isEqualTo(a.getBean(JwtKeyRing.class).activeKid());
+        }));
+    }
+
+    @Test
+    void rejectsTokensFromAnotherKeyFile() {
+        String[] token = new String[1];
+        new ApplicationContextRunner()
+                .withUserConfiguration(JwtKeyRing.class, JwtTokenProvider.class)
+                .withPropertyValues(
+                        "app.jwt.keyring-file=" + dir.resolve("other.properties"),
+                        "app.jwt.expiration=3600000")
+                .run(other -> token[0] = provider(other).createToken(auth("x@pms.local")));
+
+        node().run(a -> assertThat(provider(a).parseToken(token[0])).isEmpty());
+    }
+
+    @Test
+    void tokensWithUnknownKidsDoNotHoldBackARotatedKey() {
+        String[] foreign = new String[1];
+        new ApplicationContextRunner()
+                .withUserConfiguration(JwtKeyRing.class, JwtTokenProvider.class)
+                .withPropertyValues(
+                        "app.jwt.keyring-file=" + dir.resolve("other.properties"),
+                        "app.jwt.expiration=3600000")
+                .run(other -> foreign[0] = provider(other).createToken(auth("x@pms.local")));
+
+        node().run(a -> node().run(b -> {
+            assertThat(provider(b).parseToken(foreign[0])).isEmpty();
+
+            a.getBean(JwtKeyRing.class).rotate();
+            String after = provider(a).createToken(auth("a@pms.local"));
+
+            assertThat(provider(b).parseToken(after)).isPresent();
+        }));
+    }
+
+    @Test
+    void aBrokenKeyFileKeepsTheCurrentKeys() {
+        node().run(a -> {
+            JwtKeyRing ring = a.getBean(JwtKeyRing.class);
+            String token = provider(a).createToken(auth("a@pms.local"));
+            String kid = ring.activeKid();
+
+            for (String broken : List.of("active=" + kid + "\nkey." + kid + "=not*base64\n",
+                    "active=" + kid + "\nkey." + kid + "=c2hvcnQ=\n",
+                    "active=missing\n")) {
+                Path file = dir.resolve("jwt-keyring.properties");
+                Files.writeString(file, broken);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+                ring.reload();
+
+                assertThat(ring.activeKid()).isEqualTo(kid);
+                assertThat(provider(a).parseToken(token)).isPresent();
+            }
+        });
+    }
+
+    private static JwtTokenProvider provider(ConfigurableApplicationContext context) {
+        return context.getBean(JwtTokenProvider.class);
+    }
+
+    private static UsernamePasswordAuthenticationToken auth(String email) {
+        User user = new User(email, "secret", "ADMIN", "Test", "User", null, null);
+        user.setId(1L);
+        return new UsernamePasswordAuthenticationToken(new CustomUserDetails(user), null, List.of());
+    }
+}
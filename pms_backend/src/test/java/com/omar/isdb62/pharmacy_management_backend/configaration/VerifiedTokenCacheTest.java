@@ -0,0 +1,46 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifiedTokenCacheTest {
+
+    private static final long NOW = 1_000_000;
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(100);
+
+    @Test
+    void servesATokenUntilItExpires() {
+        Claims claims = claims(NOW + 60_000);
+        cache.put(1, "token", claims);
+
+        assertThat(cache.get(1, "token", NOW)).isSameAs(claims);
+        assertThat(cache.get(1, "token", NOW + 60_000)).isNull();
+    }
+
+    // Also covers a token verified while the ring changed: it is stored under
+    // the generation read before verifying it
+    @Test
+    void doesNotServeWhatAnOlderKeyringVerified() {
+        cache.put(1, "token", claims(NOW + 60_000));
+
+        assertThat(cache.get(2, "token", NOW)).isNull();
+    }
+
+    @Test
+    void sizeZeroTurnsTheCacheOff() {
+        VerifiedTokenCache off = new VerifiedTokenCache(0);
+        off.put(1, "token", claims(NOW + 60_000));
+
+        assertThat(off.get(1, "token", NOW)).isNull();
+    }
+
+    private static Claims claims(long expiresAtMillis) {
+        return Jwts.claims().setSubject("a@pms.local").setExpiration(new Date(expiresAtMillis));
+    }
+}
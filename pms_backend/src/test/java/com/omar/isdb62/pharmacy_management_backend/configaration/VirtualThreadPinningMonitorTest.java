@@ -0,0 +1,60 @@
+package com.omar.isdb62.pharmacy_management_backend.configaration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Object monitor = new Object();
+
+    @Test
+    void timesVirtualThreadsBlockedInsideSynchronized() throws Exception {
+        VirtualThreadPinningMonitor pinningMonitor =
+                new VirtualThreadPinningMonitor(meterRegistry, true, Duration.ofMillis(10));
+        pinningMonitor.start();
+        try {
+            Thread.ofVirtual().start(() -> {
+                synchronized (monitor) {
+                    sleep(50);
+                }
+            }).join();
+
+            // JFR hands events to the stream about once a second
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (pinned() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            assertThat(pinned()).isPositive();
+        } finally {
+            pinningMonitor.stop();
+        }
+    }
+
+    @Test
+    void staysOffWhenDisabled() {
+        VirtualThreadPinningMonitor pinningMonitor =
+                new VirtualThreadPinningMonitor(meterRegistry, false, Duration.ofMillis(10));
+        pinningMonitor.start();
+        pinningMonitor.stop();
+
+        assertThat(pinned()).isZero();
+    }
+
+    private long pinned() {
+        return meterRegistry.timer("jvm.threads.virtual.pinned").count();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
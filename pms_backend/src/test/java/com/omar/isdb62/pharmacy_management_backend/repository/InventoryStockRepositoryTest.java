@@ -0,0 +1,66 @@
+package com.omar.isdb62.pharmacy_management_backend.repository;
+
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryStockRepository.StockLevel;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InventoryStockRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final InventoryStockRepository repository = new InventoryStockRepository(jdbcTemplate);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void decrementsInKeyOrderAndReportsLevelsInCartOrder() throws Exception {
+        List<InvoiceHistory> cart = List.of(
+                line("Seclo", "Capsule"),
+                line("Napa", "Tablet"),
+                line("Napa", "Syrup"));
+        Connection connection = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        ResultSet returned = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString(), any(String[].class))).thenReturn(ps);
+        // Napa/Syrup is short, the other two rows come back in batch order
+        when(ps.executeBatch()).thenReturn(new int[]{0, 1, 1});
+        when(ps.getGeneratedKeys()).thenReturn(returned);
+        when(returned.next()).thenReturn(true, true, false);
+        when(returned.getInt("quantity")).thenReturn(40, 7);
+        when(returned.getLong("version")).thenReturn(3L, 9L);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+                .thenAnswer(call -> call.<ConnectionCallback<?>>getArgument(0).doInConnection(connection));
+
+        StockLevel[] levels = repository.decrementStock(cart);
+
+        InOrder batch = inOrder(ps);
+        batch.verify(ps).setString(3, "Syrup");
+        batch.verify(ps).setString(3, "Tablet");
+        batch.verify(ps).setString(3, "Capsule");
+        assertThat(levels).containsExactly(new StockLevel(7, 9), new StockLevel(40, 3), null);
+    }
+
+    @Test
+    void emptyCartSendsNothing() {
+        assertThat(repository.decrementStock(List.of())).isEmpty();
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static InvoiceHistory line(String itemName, String category) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setItemName(itemName);
+        line.setCategory(category);
+        line.setQuantity(1);
+        return line;
+    }
+}
@@ -0,0 +1,164 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.dto.CheckoutResult;
+import com.omar.isdb62.pharmacy_management_backend.exception.InsufficientStockException;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@TestPropertySource(properties = "app.invoice.checkout.group-commit.enabled=true")
+class CheckoutBatcherTest extends PostgresIntegrationTest {
+
+    private static final int STOCK = 100_000;
+    private static final int TILLS = 16;
+    private static final int CHECKOUTS_PER_TILL = 10;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        invoiceRepository.deleteAll();
+        inventoryRepository.deleteAll();
+    }
+
+    @Test
+    void parallelCartsShareTransactions() throws Exception {
+        inventoryRepository.save(item("Napa", STOCK));
+        long batchesBefore = meterRegistry.summary("invoice.checkout.batch.size").count();
+
+        runTills(TILLS, CHECKOUTS_PER_TILL, cart -> checkoutBatcher.checkout(null, cart));
+
+        int carts = TILLS * CHECKOUTS_PER_TILL;
+        assertThat(invoiceRepository.count()).isEqualTo(carts);
+        assertThat(stock("Napa")).isEqualTo(STOCK - carts);
+        assertThat(meterRegistry.summary("invoice.checkout.batch.size").count() - batchesBefore)
+                .isLessThan(carts);
+    }
+
+    @Test
+    void aShortCartFailsWithoutTheOthers() {
+        inventoryRepository.save(item("Napa", 5));
+
+        CompletableFuture<CheckoutResult> first = checkoutBatcher.submit(null, List.of(line("Napa", 2)));
+        CompletableFuture<CheckoutResult> tooMany = checkoutBatcher.submit(null, List.of(line("Napa", 10)));
+        CompletableFuture<CheckoutResult> last = checkoutBatcher.submit(null, List.of(line("Napa", 3)));
+
+        assertThat(first).succeedsWithin(10, TimeUnit.SECONDS);
+        assertThat(last).succeedsWithin(10, TimeUnit.SECONDS);
+        assertThat(tooMany).failsWithin(10, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause().isInstanceOf(InsufficientStockException.class);
+        assertThat(stock("Napa")).isZero();
+        assertThat(invoiceRepository.count()).isEqualTo(2);
+    }
+
+    // Sales per second, one transaction per sale vs group commit:
+    //   mvn test -Dtest=CheckoutBatcherTest -Dcheckout.benchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "checkout.benchmark", matches = "true")
+    void compareSalesPerSecond() throws Exception {
+        int tills = Integer.getInteger("checkout.benchmark.tills", 32);
+        int perTill = Integer.getInteger("checkout.benchmark.checkouts", 200);
+        inventoryRepository.save(item("Napa", Integer.MAX_VALUE / 2));
+        inventoryRepository.save(item("Seclo", Integer.MAX_VALUE / 2));
+
+        // Warm up both paths before measuring
+        runTills(tills, 10, invoiceHistoryService::createInvoices);
+        runTills(tills, 10, cart -> checkoutBatcher.checkout(null, cart));
+
+        long direct = runTills(tills, perTill, invoiceHistoryService::createInvoices);
+        long grouped = runTills(tills, perTill, cart -> checkoutBatcher.checkout(null, cart));
+
+        int sales = tills * perTill;
+        log.info("{} tills, {} sales: one transaction per sale {} sales/s, group commit {} sales/s",
+                tills, sales, Math.round(sales * 1e9 / direct), Math.round(sales * 1e9 / grouped));
+        // Many tills waiting on one commit each must lose to them sharing commits
+        assertThat(grouped).isLessThan(direct);
+    }
+
+    // Returns the elapsed nanoseconds
+    private long runTills(int tills, int checkoutsPerTill, Consumer<List<InvoiceHistory>> checkout) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(tills);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < tills; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < checkoutsPerTill; i++) {
+                    checkout.accept(List.of(line("Napa", 1)));
+                }
+                return null;
+            }));
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - started;
+        pool.shutdown();
+        return elapsed;
+    }
+
+    private int stock(String name) {
+        return inventoryRepository.findByItemNameAndCategory(name, "Tablet").orElseThrow().getQuantity();
+    }
+
+    private static Inventory item(String name, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(quantity);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+
+    private static InvoiceHistory line(String name, int quantity) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setItemName(name);
+        line.setCategory("Tablet");
+        line.setQuantity(quantity);
+        line.setUnitPrice(10);
+        line.setSubTotal(10.0 * quantity);
+        line.setAmount(10.0 * quantity);
+        line.setNetPayable(10.0 * quantity);
+        return line;
+    }
+}
@@ -0,0 +1,163 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.dto.CheckoutResult;
+import com.omar.isdb62.pharmacy_management_backend.exception.IdempotencyKeyReusedException;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotentCheckoutTest extends PostgresIntegrationTest {
+
+    private static final int STOCK = 100;
+    private static final int RETRIES = 8;
+
+    @Autowired
+    private IdempotentCheckoutService idempotentCheckoutService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM invoice_idempotency_key");
+        invoiceHistoryRepository.deleteAll();
+        invoiceRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        inventoryRepository.save(item());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SimulatedConflict.remove(jdbcTemplate);
+    }
+
+    @Test
+    void aRetryReturnsTheFirstInvoiceWithoutSellingAgain() {
+        String key = UUID.randomUUID().toString();
+
+        CheckoutResult first = idempotentCheckoutService.createInvoices(key, cart());
+        CheckoutResult retry = idempotentCheckoutService.createInvoices(key, cart());
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(retry.replayed()).isTrue();
+        assertThat(retry.lines()).extracting(InvoiceHistory::getInvoiceNumber)
+                .containsOnly(first.lines().get(0).getInvoiceNumber());
+        assertThat(invoiceRepository.count()).isEqualTo(1);
+        assertThat(stock()).isEqualTo(STOCK - 2);
+    }
+
+    // All requests start together, the ones that lose the key insert wait for
+    // the winner and return its invoice
+    @Test
+    void concurrentDuplicatesWaitForTheFirstAttempt() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ExecutorService clients = Executors.newFixedThreadPool(RETRIES);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CheckoutResult>> futures = new ArrayList<>();
+        for (int i = 0; i < RETRIES; i++) {
+            futures.add(clients.submit(() -> {
+                start.await();
+                return idempotentCheckoutService.createInvoices(key, cart());
+            }));
+        }
+        start.countDown();
+        List<String> numbers = new ArrayList<>();
+        int replayed = 0;
+        for (Future<CheckoutResult> future : futures) {
+            CheckoutResult result = future.get(1, TimeUnit.MINUTES);
+            numbers.add(result.lines().get(0).getInvoiceNumber());
+            replayed += result.replayed() ? 1 : 0;
+        }
+        clients.shutdown();
+
+        assertThat(numbers).containsOnly(numbers.get(0));
+        assertThat(replayed).isEqualTo(RETRIES - 1);
+        assertThat(invoiceRepository.count()).isEqualTo(1);
+        assertThat(stock()).isEqualTo(STOCK - 2);
+    }
+
+    // The retried attempt must store the fingerprint of the request as sent,
+    // not of the lines the failed attempt had filled in
+    @Test
+    void aResendAfterAConflictIsReplayed() {
+        String key = UUID.randomUUID().toString();
+        SimulatedConflict.once(jdbcTemplate);
+
+        CheckoutResult first = idempotentCheckoutService.createInvoices(key, cart());
+        CheckoutResult resend = idempotentCheckoutService.createInvoices(key, cart());
+
+        assertThat(first.replayed()).isFalse();
+        assertThat(resend.replayed()).isTrue();
+        assertThat(resend.lines()).extracting(InvoiceHistory::getInvoiceNumber)
+                .containsOnly(first.lines().get(0).getInvoiceNumber());
+        assertThat(invoiceRepository.count()).isEqualTo(1);
+        assertThat(stock()).isEqualTo(STOCK - 2);
+    }
+
+    @Test
+    void aKeyCannotBeReusedForAnotherCart() {
+        String key = UUID.randomUUID().toString();
+        idempotentCheckoutService.createInvoices(key, cart());
+
+        List<InvoiceHistory> other = cart();
+        other.get(0).setQuantity(5);
+
+        assertThatThrownBy(() -> idempotentCheckoutService.createInvoices(key, other))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(stock()).isEqualTo(STOCK - 2);
+    }
+
+    private int stock() {
+        return inventoryRepository.findByItemNameAndCategory("Napa", "Tablet").orElseThrow().getQuantity();
+    }
+
+    private static Inventory item() {
+        Inventory inventory = new Inventory();
+        inventory.setItemName("Napa");
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(STOCK);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+
+    // A fresh list each time, like a client resending the same JSON
+    private static List<InvoiceHistory> cart() {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setCustomerName("Walk-in");
+        line.setItemName("Napa");
+        line.setCategory("Tablet");
+        line.setQuantity(2);
+        line.setUnitPrice(10);
+        line.setSubTotal(20.0);
+        line.setAmount(20.0);
+        line.setNetPayable(20.0);
+        return new ArrayList<>(List.of(line));
+    }
+}
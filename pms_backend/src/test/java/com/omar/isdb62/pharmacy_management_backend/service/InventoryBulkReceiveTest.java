@@ -0,0 +1,104 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.constants.ReceiveLineStatus;
+import com.omar.isdb62.pharmacy_management_backend.dto.ReceiveLineResult;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+class InventoryBulkReceiveTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        inventoryService.saveMedicine(line("Napa", 10));
+    }
+
+    @Test
+    void upsertsTheDeliveryAndReportsEachLine() {
+        Inventory invalid = line("Seclo", 0);
+
+        List<ReceiveLineResult> results = inventoryService.receiveDelivery(List.of(
+                line("Napa", 5), line("Fexo", 7), invalid, line("Fexo", 3)));
+
+        assertThat(results).extracting(ReceiveLineResult::status).containsExactly(
+                ReceiveLineStatus.UPDATED, ReceiveLineStatus.CREATED,
+                ReceiveLineStatus.REJECTED, ReceiveLineStatus.UPDATED);
+        assertThat(results.get(0).quantity()).isEqualTo(15);
+        assertThat(results.get(3).quantity()).isEqualTo(10);
+        assertThat(inventoryRepository.findByItemNameAndCategory("Fexo", "Tablet"))
+                .hasValueSatisfying(i -> assertThat(i.getQuantity()).isEqualTo(10));
+        assertThat(inventoryRepository.findByItemNameAndCategory("Seclo", "Tablet")).isEmpty();
+        // The in-memory views follow the batch too
+        assertThat(inventoryService.getMedByName("fexo")).singleElement()
+                .satisfies(i -> assertThat(i.getQuantity()).isEqualTo(10));
+    }
+
+    // Bulk receipt against the one-line-at-a-time endpoint:
+    //   mvn test -Dtest=InventoryBulkReceiveTest -Dinventory.benchmark=true
+    @Test
+    @EnabledIfSystemProperty(named = "inventory.benchmark", matches = "true")
+    void benchmarkTenThousandLineReceipt() {
+        int lines = Integer.getInteger("inventory.benchmark.lines", 10_000);
+        List<Inventory> delivery = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            delivery.add(line("Bulk " + i, 5));
+        }
+
+        long start = System.nanoTime();
+        inventoryService.receiveDelivery(delivery);
+        long createMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        inventoryService.receiveDelivery(delivery);
+        long updateMs = (System.nanoTime() - start) / 1_000_000;
+
+        start = System.nanoTime();
+        for (int i = 0; i < lines; i++) {
+            inventoryService.receiveMedicine(line("Bulk " + i, 5));
+        }
+        long singleMs = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("{} lines: bulk insert {} ms, bulk update {} ms, one by one {} ms",
+                lines, createMs, updateMs, singleMs);
+        // One batch against two round trips per line
+        assertThat(updateMs).isLessThan(singleMs);
+        assertThat(inventoryRepository.findByItemNameAndCategory("Bulk 0", "Tablet"))
+                .hasValueSatisfying(i -> assertThat(i.getQuantity()).isEqualTo(15));
+    }
+
+    private static Inventory line(String name, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setCompanyName("Square");
+        inventory.setGeneric("Generic");
+        inventory.setQuantity(quantity);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+}
@@ -0,0 +1,89 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A sale must show up in every cached inventory view straight after it commits
+class InventoryCacheConsistencyTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        inventoryService.saveMedicine(item("Napa", 11));
+        inventoryService.saveMedicine(item("Seclo", 50));
+    }
+
+    @Test
+    void saleIsNeverServedStale() {
+        for (int sale = 1; sale <= 5; sale++) {
+            // Warm every cached view, then sell
+            inventoryService.getAllInventorySortedByItemName();
+            inventoryService.getLowStockItems();
+            inventoryService.getSufficientStockItems();
+            inventoryService.getMedByName("napa");
+
+            invoiceHistoryService.createInvoices(List.of(line("Napa", 1)));
+
+            int expected = 11 - sale;
+            assertThat(quantity(inventoryService.getAllInventorySortedByItemName())).isEqualTo(expected);
+            assertThat(quantity(inventoryService.getMedByName("napa"))).isEqualTo(expected);
+            // Napa drops below the threshold after the second sale
+            List<Inventory> low = inventoryService.getLowStockItems();
+            List<Inventory> sufficient = inventoryService.getSufficientStockItems();
+            assertThat(low.stream().anyMatch(i -> i.getItemName().equals("Napa"))).isEqualTo(expected < 10);
+            assertThat(sufficient.stream().anyMatch(i -> i.getItemName().equals("Napa"))).isEqualTo(expected >= 10);
+        }
+    }
+
+    private static int quantity(List<Inventory> rows) {
+        return rows.stream().filter(i -> i.getItemName().equals("Napa")).findFirst().orElseThrow().getQuantity();
+    }
+
+    private static Inventory item(String name, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setCompanyName("Beximco");
+        inventory.setGeneric("Paracetamol");
+        inventory.setQuantity(quantity);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+
+    private static InvoiceHistory line(String name, int quantity) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setItemName(name);
+        line.setCategory("Tablet");
+        line.setQuantity(quantity);
+        line.setUnitPrice(10);
+        line.setSubTotal(10.0 * quantity);
+        line.setAmount(10.0 * quantity);
+        line.setNetPayable(10.0 * quantity);
+        return line;
+    }
+}
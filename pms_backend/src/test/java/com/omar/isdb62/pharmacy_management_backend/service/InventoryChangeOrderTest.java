@@ -0,0 +1,120 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.annotation.Order;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.event.TransactionalEventListenerFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The search index and the query cache both react to a committed change. A
+// search that starts right after the cache drops its entries must already
+// read the changed index, otherwise the stale rows are cached until the item
+// changes again.
+class InventoryChangeOrderTest {
+
+    private AnnotationConfigApplicationContext context;
+    private InventoryQueryCache cache;
+    private InventorySearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        InventoryRepository repository = mock(InventoryRepository.class);
+        when(repository.findAll()).thenReturn(List.of(item(5)));
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(TransactionalEventListenerFactory.class);
+        context.registerBean(InventorySearchIndex.class, () -> new InventorySearchIndex(repository));
+        context.registerBean(InventoryQueryCache.class, () -> new InventoryQueryCache(100, new SimpleMeterRegistry()));
+        context.registerBean(SearchRightAfterInvalidation.class);
+        context.registerBean(PlatformTransactionManager.class, NoOpTransactionManager::new);
+        context.refresh();
+        cache = context.getBean(InventoryQueryCache.class);
+        index = context.getBean(InventorySearchIndex.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void searchRacingTheInvalidationReadsTheChangedIndex() {
+        assertThat(search().get(0).getQuantity()).isEqualTo(5);
+
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status ->
+                context.publishEvent(InventoryChangedEvent.stockAdjusted("Napa", "Tablet", 4, 1)));
+
+        assertThat(context.getBean(SearchRightAfterInvalidation.class).seen).isEqualTo(4);
+        assertThat(search().get(0).getQuantity()).isEqualTo(4);
+    }
+
+    private List<Inventory> search() {
+        return cache.get(InventoryQueryCache.searchKey("napa"), () -> index.search("napa"));
+    }
+
+    // A till searching in the window between the cache's and the next listener
+    static class SearchRightAfterInvalidation {
+
+        private final InventoryQueryCache cache;
+        private final InventorySearchIndex index;
+        private int seen;
+
+        SearchRightAfterInvalidation(InventoryQueryCache cache, InventorySearchIndex index) {
+            this.cache = cache;
+            this.index = index;
+        }
+
+        @Order(InventoryQueryCache.EVENT_ORDER + 1)
+        @TransactionalEventListener
+        public void onInventoryChanged(InventoryChangedEvent event) {
+            seen = cache.get(InventoryQueryCache.searchKey("napa"), () -> index.search("napa")).get(0).getQuantity();
+        }
+    }
+
+    // Runs the after-commit callbacks without a database
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    private static Inventory item(int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setId(1L);
+        inventory.setItemName("Napa");
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(quantity);
+        return inventory;
+    }
+}
@@ -0,0 +1,106 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryOptimisticLockTest extends PostgresIntegrationTest {
+
+    private static final int STOCK = 1_000;
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 20;
+    private static final int RECEIVED_PER_DELIVERY = 5;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        inventoryRepository.save(item(STOCK));
+    }
+
+    // Half the threads receive deliveries through the JPA read-modify-write,
+    // the other half sell through the JDBC checkout, all on one SKU
+    @Test
+    void parallelReceivesAndSalesLoseNoUpdates() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            boolean receiver = t % 2 == 0;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    if (receiver) {
+                        Inventory delivery = item(RECEIVED_PER_DELIVERY);
+                        inventoryService.receiveMedicine(delivery);
+                    } else {
+                        invoiceHistoryService.createInvoices(List.of(line()));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        int operations = THREADS / 2 * OPERATIONS_PER_THREAD;
+        Inventory napa = inventoryRepository.findByItemNameAndCategory("Napa", "Tablet").orElseThrow();
+        assertThat(napa.getQuantity()).isEqualTo(STOCK + operations * RECEIVED_PER_DELIVERY - operations);
+        assertThat(napa.getVersion()).isGreaterThanOrEqualTo(2L * operations);
+        assertThat(meterRegistry.counter("db.writes", "operation", "receiveMedicine").count())
+                .isGreaterThanOrEqualTo(operations);
+    }
+
+    private static Inventory item(int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName("Napa");
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(quantity);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+
+    private static InvoiceHistory line() {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setItemName("Napa");
+        line.setCategory("Tablet");
+        line.setQuantity(1);
+        line.setUnitPrice(10);
+        line.setSubTotal(10.0);
+        line.setAmount(10.0);
+        line.setNetPayable(10.0);
+        return line;
+    }
+}
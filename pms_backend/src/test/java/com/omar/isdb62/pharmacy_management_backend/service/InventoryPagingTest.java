@@ -0,0 +1,92 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryListItem;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryPageResponse;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InventoryPagingTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        List<Inventory> items = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            // Same name in several categories, so the id tie-break matters
+            items.add(item("Item " + (char) ('A' + i % 5), "Category " + i));
+        }
+        inventoryRepository.saveAll(items);
+    }
+
+    @Test
+    void pagesCoverTheCatalogOnceInListOrder() {
+        List<Long> paged = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            InventoryPageResponse page = inventoryService.getInventoryPage(cursor, 7);
+            assertThat(page.items()).hasSizeLessThanOrEqualTo(7);
+            page.items().stream().map(InventoryListItem::id).forEach(paged::add);
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        List<Long> expected = inventoryRepository.findAll().stream()
+                .sorted(Comparator.comparing(Inventory::getItemName).thenComparing(Inventory::getId))
+                .map(Inventory::getId)
+                .toList();
+        assertThat(paged).containsExactlyElementsOf(expected);
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    void exactMultipleOfThePageSizeEndsWithoutAnEmptyPage() {
+        InventoryPageResponse page = inventoryService.getInventoryPage(null, 23);
+
+        assertThat(page.items()).hasSize(23);
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void rejectsBadCursorsAndSizes() {
+        assertThatThrownBy(() -> inventoryService.getInventoryPage("not a cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> inventoryService.getInventoryPage(null, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Inventory item(String name, String category) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName(name);
+        inventory.setCategory(category);
+        inventory.setCompanyName("Square");
+        inventory.setGeneric("Generic");
+        inventory.setQuantity(10);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+}
@@ -0,0 +1,91 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventoryQueryCacheTest {
+
+    private SimpleMeterRegistry registry;
+    private InventoryQueryCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new InventoryQueryCache(100, registry);
+    }
+
+    @Test
+    void servesRepeatedQueriesFromCacheAndCountsHitsAndMisses() {
+        cache.get(InventoryQueryCache.ALL, () -> load(item(1L, "Napa", 5)));
+        cache.get(InventoryQueryCache.ALL, () -> load(item(1L, "Napa", 5)));
+
+        assertThat(loads).hasValue(1);
+        assertThat(registry.get("cache.gets").tag("cache", "inventory.queries").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "inventory.queries").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void saleDropsTheListsAndOnlyTheSearchesContainingTheItem() {
+        cache.get(InventoryQueryCache.ALL, () -> load(item(1L, "Napa", 5), item(2L, "Seclo", 5)));
+        cache.get(InventoryQueryCache.searchKey("napa"), () -> load(item(1L, "Napa", 5)));
+        cache.get(InventoryQueryCache.searchKey("seclo"), () -> load(item(2L, "Seclo", 5)));
+
+        cache.onInventoryChanged(InventoryChangedEvent.stockAdjusted("Napa", "Tablet", 4, 1));
+
+        cache.get(InventoryQueryCache.ALL, () -> load(item(1L, "Napa", 4), item(2L, "Seclo", 5)));
+        cache.get(InventoryQueryCache.searchKey("napa"), () -> load(item(1L, "Napa", 4)));
+        cache.get(InventoryQueryCache.searchKey("seclo"), () -> load(item(2L, "Seclo", 5)));
+        assertThat(loads).hasValue(5);
+    }
+
+    @Test
+    void newItemDropsSearchesItNowMatches() {
+        cache.get(InventoryQueryCache.searchKey("nap"), () -> load(item(1L, "Napa", 5)));
+
+        cache.onInventoryChanged(InventoryChangedEvent.upserted(item(3L, "Napa Extra", 20)));
+
+        List<Inventory> rows = cache.get(InventoryQueryCache.searchKey("nap"),
+                () -> load(item(1L, "Napa", 5), item(3L, "Napa Extra", 20)));
+        assertThat(rows).hasSize(2);
+    }
+
+    @Test
+    void loadThatOverlapsAChangeIsNotStored() {
+        // The change commits while the query is still reading the old stock
+        List<Inventory> stale = cache.get(InventoryQueryCache.ALL, () -> {
+            cache.onInventoryChanged(InventoryChangedEvent.stockAdjusted("Napa", "Tablet", 4, 1));
+            return load(item(1L, "Napa", 5));
+        });
+
+        List<Inventory> fresh = cache.get(InventoryQueryCache.ALL, () -> load(item(1L, "Napa", 4)));
+
+        assertThat(stale.get(0).getQuantity()).isEqualTo(5);
+        assertThat(fresh.get(0).getQuantity()).isEqualTo(4);
+        assertThat(loads).hasValue(2);
+    }
+
+    private List<Inventory> load(Inventory... items) {
+        loads.incrementAndGet();
+        return List.of(items);
+    }
+
+    private static Inventory item(Long id, String name, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setId(id);
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(quantity);
+        return inventory;
+    }
+}
@@ -0,0 +1,92 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InventorySearchIndexTest {
+
+    private InventorySearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        InventoryRepository repository = mock(InventoryRepository.class);
+        when(repository.findAll()).thenReturn(List.of(
+                item(1L, "Napa Extra", "Paracetamol + Caffeine", "Beximco"),
+                item(2L, "Ace", "Paracetamol", "Square"),
+                item(3L, "Napa", "Paracetamol", "Beximco"),
+                item(4L, "Seclo", "Omeprazole", "Square")));
+        index = new InventorySearchIndex(repository);
+        index.load();
+    }
+
+    @Test
+    void ranksExactAndPrefixNameMatchesFirst() {
+        assertThat(ids(index.search("napa"))).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void matchesGenericAndCompanyAfterName() {
+        assertThat(ids(index.search("paracet"))).containsExactly(2L, 3L, 1L);
+        assertThat(ids(index.search("squ"))).containsExactly(2L, 4L);
+    }
+
+    @Test
+    void shortQueriesUseContainsSemantics() {
+        assertThat(ids(index.search("CL"))).containsExactly(4L);
+    }
+
+    @Test
+    void followsUpsertsAndDeletes() {
+        Inventory renamed = item(4L, "Seclo 20", "Omeprazole", "Square");
+        renamed.setQuantity(7);
+        index.onInventoryChanged(InventoryChangedEvent.upserted(renamed));
+        index.onInventoryChanged(InventoryChangedEvent.deleted(item(3L, "Napa", "Paracetamol", "Beximco")));
+
+        assertThat(index.search("seclo 2")).singleElement()
+                .satisfies(i -> assertThat(i.getQuantity()).isEqualTo(7));
+        assertThat(ids(index.search("napa"))).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+    // Listeners of different transactions don't run in commit order
+    @Test
+    void keepsTheNewestWriteOfARow() {
+        Inventory received = item(3L, "Napa", "Paracetamol", "Beximco");
+        received.setQuantity(15);
+        received.setVersion(2);
+        index.onInventoryChanged(InventoryChangedEvent.upserted(received));
+
+        index.onInventoryChanged(InventoryChangedEvent.stockAdjusted("Napa", "Tablet", 9, 1));
+        Inventory stale = item(3L, "Napa", "Paracetamol", "Beximco");
+        stale.setVersion(1);
+        index.onInventoryChanged(InventoryChangedEvent.upserted(stale));
+
+        assertThat(index.search("napa").get(0).getQuantity()).isEqualTo(15);
+
+        index.onInventoryChanged(InventoryChangedEvent.stockAdjusted("Napa", "Tablet", 14, 3));
+        assertThat(index.search("napa").get(0).getQuantity()).isEqualTo(14);
+    }
+
+    private static Inventory item(Long id, String name, String generic, String company) {
+        Inventory inventory = new Inventory();
+        inventory.setId(id);
+        inventory.setItemName(name);
+        inventory.setGeneric(generic);
+        inventory.setCompanyName(company);
+        inventory.setCategory("Tablet");
+        return inventory;
+    }
+
+    private static List<Long> ids(List<Inventory> inventories) {
+        return inventories.stream().map(Inventory::getId).toList();
+    }
+}
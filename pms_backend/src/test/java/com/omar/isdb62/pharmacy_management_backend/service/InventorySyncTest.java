@@ -0,0 +1,102 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.dto.InventoryChangesResponse;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InventoryTombstone;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryTombstoneRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InventorySyncTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryTombstoneRepository tombstoneRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        tombstoneRepository.deleteAll();
+        for (String name : List.of("Ace", "Napa", "Seclo", "Fexo")) {
+            inventoryService.saveMedicine(item(name));
+        }
+    }
+
+    @Test
+    void changedSinceReturnsOnlyWritesAndDeletesAfterTheVersion() {
+        InventoryChangesResponse initial = inventoryService.getChangesSince(0);
+        assertThat(initial.upserts()).hasSize(4);
+
+        // A price update, a sale through the JDBC checkout and a delete
+        Inventory napa = item("Napa");
+        napa.setSellPrice(BigDecimal.valueOf(12));
+        inventoryService.updateMedicineByNameAndCategory("Napa", "Tablet", napa);
+        invoiceHistoryService.createInvoices(List.of(line("Seclo")));
+        inventoryService.deleteMedicineByNameAndCategory("Fexo", "Tablet");
+
+        InventoryChangesResponse delta = inventoryService.getChangesSince(initial.version());
+
+        assertThat(delta.upserts()).extracting(Inventory::getItemName).containsExactlyInAnyOrder("Napa", "Seclo");
+        assertThat(delta.deletes()).extracting(InventoryTombstone::getItemName).containsExactly("Fexo");
+        assertThat(delta.version()).isGreaterThan(initial.version());
+
+        // Nothing happened since
+        InventoryChangesResponse quiet = inventoryService.getChangesSince(delta.version());
+        assertThat(quiet.upserts()).isEmpty();
+        assertThat(quiet.deletes()).isEmpty();
+    }
+
+    @Test
+    void etagIsStableUntilTheCatalogChanges() {
+        String first = inventoryService.getCatalog().etag();
+        assertThat(inventoryService.getCatalog().etag()).isEqualTo(first);
+
+        invoiceHistoryService.createInvoices(List.of(line("Ace")));
+
+        assertThat(inventoryService.getCatalog().etag()).isNotEqualTo(first);
+    }
+
+    private static Inventory item(String name) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(20);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+
+    private static InvoiceHistory line(String name) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setItemName(name);
+        line.setCategory("Tablet");
+        line.setQuantity(1);
+        line.setUnitPrice(10);
+        line.setSubTotal(10.0);
+        line.setAmount(10.0);
+        line.setNetPayable(10.0);
+        return line;
+    }
+}
@@ -0,0 +1,119 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.InvoiceArchiveMonth;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceArchiveTest {
+
+    private static final YearMonth JANUARY = YearMonth.of(2024, 1);
+    private static final YearMonth FEBRUARY = YearMonth.of(2024, 2);
+
+    @TempDir
+    Path dir;
+
+    private InvoiceArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        archive = new InvoiceArchive(dir.toString(), 2);
+        archive.load();
+    }
+
+    @Test
+    void roundTripsEveryColumn() throws Exception {
+        InvoiceHistory line = line(7L, "INV-20240105-0001", LocalDate.of(2024, 1, 5), "Napa");
+        line.setCustomerName(null);
+        line.setContactNumber("0171");
+        line.setQuantity(-3);
+        line.setUnitPrice(1.25);
+        line.setSubTotal(3.75);
+        line.setAmount(3.75);
+        line.setDiscount(5);
+        line.setDiscountAmount(0.19);
+        line.setNetPayable(3.56);
+
+        archive.store(JANUARY, List.of(line));
+        archive.publish(JANUARY);
+
+        assertThat(archive.findByInvoiceNumber("INV-20240105-0001")).singleElement()
+                .usingRecursiveComparison().isEqualTo(line);
+    }
+
+    @Test
+    void servesOnlyPublishedMonthsAndSurvivesARestart() throws Exception {
+        archive.store(JANUARY, month(JANUARY, 300));
+        archive.store(FEBRUARY, month(FEBRUARY, 200));
+        archive.publish(JANUARY);
+
+        assertThat(archive.unpublished()).containsExactly(FEBRUARY);
+        assertThat(archive.findByInvoiceNumber("INV-20240201-0001")).isEmpty();
+
+        archive.publish(FEBRUARY);
+        InvoiceArchive restarted = new InvoiceArchive(dir.toString(), 2);
+        restarted.load();
+
+        assertThat(restarted.months()).extracting(InvoiceArchiveMonth::month).containsExactly(JANUARY, FEBRUARY);
+        assertThat(restarted.months()).extracting(InvoiceArchiveMonth::lines).containsExactly(300, 200);
+        assertThat(restarted.unpublished()).isEmpty();
+        assertThat(restarted.findByInvoiceNumber("INV-20240201-0001")).hasSize(1);
+    }
+
+    @Test
+    void readsDateRangesInOrderAcrossMonths() throws Exception {
+        archive.store(JANUARY, month(JANUARY, 310));
+        archive.store(FEBRUARY, month(FEBRUARY, 290));
+        archive.publish(JANUARY);
+        archive.publish(FEBRUARY);
+
+        List<InvoiceHistory> lines = drain(archive.lines(
+                LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 1), line -> "Napa".equals(line.getItemName())));
+
+        assertThat(lines).isNotEmpty()
+                .allMatch(line -> line.getItemName().equals("Napa"))
+                .extracting(InvoiceHistory::getDate)
+                .isSorted()
+                .containsOnly(LocalDate.of(2024, 1, 31), LocalDate.of(2024, 2, 1));
+    }
+
+    // Ten lines a day, two items, in shuffled order
+    private static List<InvoiceHistory> month(YearMonth month, int lines) {
+        List<InvoiceHistory> result = new ArrayList<>();
+        for (int i = lines - 1; i >= 0; i--) {
+            LocalDate day = month.atDay(1 + (i / 10) % month.lengthOfMonth());
+            String number = String.format("INV-%s-%04d", day.toString().replace("-", ""), i % 10 + 1);
+            result.add(line(month.getMonthValue() * 10_000L + i, number, day, i % 2 == 0 ? "Napa" : "Ace"));
+        }
+        return result;
+    }
+
+    private static InvoiceHistory line(long id, String invoiceNumber, LocalDate date, String item) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setId(id);
+        line.setInvoiceNumber(invoiceNumber);
+        line.setCustomerName("Walk-in");
+        line.setItemName(item);
+        line.setCategory("Tablet");
+        line.setQuantity(1);
+        line.setAmount(10);
+        line.setDate(date);
+        return line;
+    }
+
+    private static List<InvoiceHistory> drain(Iterator<InvoiceHistory> iterator) {
+        List<InvoiceHistory> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.model.Invoice;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoicePartitionRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "app.invoice.archive.dir=${java.io.tmpdir}/pms-invoice-archiver-test")
+class InvoiceArchiverTest extends PostgresIntegrationTest {
+
+    private static final YearMonth OLD_MONTH = YearMonth.of(2002, 3);
+
+    @Autowired
+    private InvoiceArchiver archiver;
+
+    @Autowired
+    private InvoiceArchive archive;
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private InvoicePartitionRepository partitionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void movesAMonthOutOfTheDatabaseAndKeepsServingIt() throws Exception {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + InvoicePartitionRepository.partitionName(OLD_MONTH));
+        jdbcTemplate.update("DELETE FROM flutter_invoice WHERE invoice_number LIKE 'INV-200203%'");
+        partitionRepository.createMonth(OLD_MONTH);
+        List<InvoiceHistory> lines = new ArrayList<>();
+        for (int i = 1; i <= 120; i++) {
+            LocalDate day = LocalDate.of(2002, 3, i % 28 + 1);
+            Invoice header = new Invoice();
+            header.setInvoiceNumber(String.format("INV-200203%02d-%04d", i % 28 + 1, i));
+            header.setCustomerName("Walk-in");
+            header.setDate(day);
+            InvoiceHistory line = new InvoiceHistory();
+            line.setInvoice(invoiceRepository.save(header));
+            line.setItemName("Napa");
+            line.setCategory("Tablet");
+            line.setQuantity(1);
+            line.setDate(day);
+            lines.add(line);
+        }
+        invoiceHistoryRepository.saveAll(lines);
+
+        assertThat(archiver.archiveMonth(OLD_MONTH)).isEqualTo(120);
+
+        assertThat(partitionRepository.attachedMonths()).doesNotContain(OLD_MONTH);
+        assertThat(partitionRepository.tableExists(OLD_MONTH)).isFalse();
+        assertThat(archive.contains(OLD_MONTH)).isTrue();
+        assertThat(invoiceHistoryService.getByInvoiceNumber("INV-20020306-0005")).singleElement()
+                .satisfies(line -> {
+                    assertThat(line.getDate()).isEqualTo(LocalDate.of(2002, 3, 6));
+                    assertThat(line.getCustomerName()).isEqualTo("Walk-in");
+                });
+    }
+}
@@ -0,0 +1,81 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// With sequence ids Hibernate can batch the invoice lines: one prepared
+// INSERT for the whole invoice instead of one per line
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class InvoiceBatchInsertTest extends PostgresIntegrationTest {
+
+    private static final int LINES = 50;
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        List<Inventory> items = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            Inventory inventory = new Inventory();
+            inventory.setItemName("Item " + i);
+            inventory.setCategory("Tablet");
+            inventory.setQuantity(100);
+            inventory.setUnitPrice(BigDecimal.ONE);
+            inventory.setSellPrice(BigDecimal.TEN);
+            items.add(inventory);
+        }
+        inventoryRepository.saveAll(items);
+    }
+
+    @Test
+    void fiftyLineInvoiceIsInsertedInOneBatch() {
+        List<InvoiceHistory> lines = new ArrayList<>();
+        for (int i = 0; i < LINES; i++) {
+            InvoiceHistory line = new InvoiceHistory();
+            line.setItemName("Item " + i);
+            line.setCategory("Tablet");
+            line.setQuantity(1);
+            line.setUnitPrice(10);
+            line.setSubTotal(10.0);
+            line.setAmount(10.0);
+            line.setNetPayable(10.0);
+            lines.add(line);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        invoiceHistoryService.createInvoices(lines);
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(LINES);
+        // At most two sequence calls for the id block, plus the batched INSERT
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+}
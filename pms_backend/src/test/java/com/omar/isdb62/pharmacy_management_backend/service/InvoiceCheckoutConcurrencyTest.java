@@ -0,0 +1,157 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.exception.InsufficientStockException;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoiceCheckoutConcurrencyTest extends PostgresIntegrationTest {
+
+    private static final int STOCK = 50;
+    private static final int TILLS = 16;
+    private static final int CHECKOUTS_PER_TILL = 10;
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        inventoryRepository.save(item("Napa", STOCK));
+        inventoryRepository.save(item("Seclo", STOCK * 10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SimulatedConflict.remove(jdbcTemplate);
+    }
+
+    @Test
+    void parallelCheckoutsNeverOversell() throws Exception {
+        ExecutorService tills = Executors.newFixedThreadPool(TILLS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < TILLS; t++) {
+            futures.add(tills.submit(() -> {
+                start.await();
+                for (int i = 0; i < CHECKOUTS_PER_TILL; i++) {
+                    try {
+                        invoiceHistoryService.createInvoices(List.of(line("Seclo", 1), line("Napa", 1)));
+                        sold.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        tills.shutdown();
+
+        assertThat(sold.get()).isEqualTo(STOCK);
+        assertThat(rejected.get()).isEqualTo(TILLS * CHECKOUTS_PER_TILL - STOCK);
+        assertThat(quantityOf("Napa")).isZero();
+        // Rejected carts roll back their Seclo line as well
+        assertThat(quantityOf("Seclo")).isEqualTo(STOCK * 10 - STOCK);
+        assertThat(invoiceHistoryRepository.count()).isEqualTo(2L * STOCK);
+    }
+
+    @Test
+    void reportsEveryShortLineAndSellsNothing() {
+        assertThatThrownBy(() -> invoiceHistoryService.createInvoices(List.of(
+                line("Napa", STOCK + 1), line("Seclo", 1), line("Missing", 1))))
+                .isInstanceOfSatisfying(InsufficientStockException.class, e -> {
+                    assertThat(e.getShortages()).extracting("line").containsExactly(0, 2);
+                    assertThat(e.getShortages()).extracting("available").containsExactly(STOCK, 0);
+                });
+
+        assertThat(quantityOf("Seclo")).isEqualTo(STOCK * 10);
+        assertThat(invoiceHistoryRepository.count()).isZero();
+    }
+
+    // The first attempt has saved its lines (they have ids) when it loses the
+    // race; the retry must not try to merge those rolled back rows
+    @Test
+    void aCheckoutThatLosesARaceAfterSavingIsRetried() {
+        double conflictsBefore = conflicts();
+        List<InvoiceHistory> cart = List.of(line("Napa", 2), line("Seclo", 1));
+        SimulatedConflict.once(jdbcTemplate);
+
+        List<InvoiceHistory> saved = invoiceHistoryService.createInvoices(cart);
+
+        assertThat(conflicts() - conflictsBefore).isEqualTo(1);
+        assertThat(saved).extracting(InvoiceHistory::getInvoiceNumber).doesNotContainNull().containsOnly(
+                saved.get(0).getInvoiceNumber());
+        assertThat(invoiceHistoryRepository.count()).isEqualTo(2);
+        assertThat(quantityOf("Napa")).isEqualTo(STOCK - 2);
+        assertThat(quantityOf("Seclo")).isEqualTo(STOCK * 10 - 1);
+        // The caller's lines are left as sent
+        assertThat(cart).extracting(InvoiceHistory::getId).containsOnlyNulls();
+    }
+
+    private double conflicts() {
+        return meterRegistry.counter("db.write.conflicts", "operation", "createInvoices").count();
+    }
+
+    private int quantityOf(String name) {
+        return inventoryRepository.findByItemNameAndCategory(name, "Tablet").orElseThrow().getQuantity();
+    }
+
+    private static Inventory item(String name, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(quantity);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+
+    private static InvoiceHistory line(String name, int quantity) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setItemName(name);
+        line.setCategory("Tablet");
+        line.setQuantity(quantity);
+        line.setUnitPrice(10);
+        line.setSubTotal(10.0 * quantity);
+        line.setAmount(10.0 * quantity);
+        line.setNetPayable(10.0 * quantity);
+        return line;
+    }
+}
@@ -0,0 +1,101 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvoiceExportServiceTest extends PostgresIntegrationTest {
+
+    private static final int ROWS = 2_500;
+    // Partitions exist from the current month on
+    private static final LocalDate DAY = LocalDate.now().withDayOfMonth(1);
+
+    @Autowired
+    private InvoiceExportService invoiceExportService;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        List<InvoiceHistory> lines = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            InvoiceHistory line = new InvoiceHistory();
+            line.setItemName("Item " + i);
+            line.setCategory("Tablet");
+            line.setQuantity(1);
+            line.setDate(DAY.plusDays(i % 10));
+            lines.add(line);
+        }
+        invoiceHistoryRepository.saveAll(lines);
+    }
+
+    @Test
+    void writesOneJsonObjectPerLineInIdOrder() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = invoiceExportService.writeNdjson(null, null, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(written).isEqualTo(ROWS);
+        assertThat(lines).hasSize(ROWS);
+        long previousId = 0;
+        for (String line : lines) {
+            JsonNode node = objectMapper.readTree(line);
+            assertThat(node.get("id").asLong()).isGreaterThan(previousId);
+            previousId = node.get("id").asLong();
+        }
+    }
+
+    // Flushes come every app.export.flush-every rows (1000), not per row
+    @Test
+    void flushesTheStreamInBlocksOfRows() {
+        AtomicInteger flushes = new AtomicInteger();
+        FilterOutputStream out = new FilterOutputStream(new ByteArrayOutputStream()) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                flushes.incrementAndGet();
+                super.flush();
+            }
+        };
+
+        invoiceExportService.writeNdjson(null, null, out);
+
+        // Two full blocks, the tail, and the generator's own flush on close
+        assertThat(flushes.get()).isBetween(ROWS / 1000, ROWS / 1000 + 2);
+    }
+
+    @Test
+    void appliesTheDateRange() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = invoiceExportService.writeNdjson(DAY, DAY.plusDays(1), out);
+
+        assertThat(written).isEqualTo(ROWS / 5);
+    }
+}
@@ -0,0 +1,119 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.model.Invoice;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoiceHeaderTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private InvoiceHistoryService invoiceHistoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @BeforeEach
+    void setUp() {
+        invoiceHistoryRepository.deleteAll();
+        invoiceRepository.deleteAll();
+        inventoryRepository.deleteAll();
+        inventoryRepository.save(item("Napa"));
+        inventoryRepository.save(item("Seclo"));
+    }
+
+    @Test
+    void checkoutWritesOneHeaderWithTheTotals() {
+        String number = invoiceHistoryService.createInvoices(List.of(line("Napa", 2), line("Seclo", 3)))
+                .get(0).getInvoiceNumber();
+
+        assertThat(invoiceHistoryService.getInvoices(null, null)).singleElement().satisfies(header -> {
+            assertThat(header.getInvoiceNumber()).isEqualTo(number);
+            assertThat(header.getCustomerName()).isEqualTo("Walk-in");
+            assertThat(header.getLineCount()).isEqualTo(2);
+            assertThat(header.getQuantity()).isEqualTo(5);
+            assertThat(header.getNetPayable()).isEqualTo(50.0);
+        });
+    }
+
+    @Test
+    void linesStillCarryTheHeaderFields() {
+        String number = invoiceHistoryService.createInvoices(List.of(line("Napa", 2), line("Seclo", 3)))
+                .get(0).getInvoiceNumber();
+
+        assertThat(invoiceHistoryService.getByInvoiceNumber(number)).hasSize(2).allSatisfy(line -> {
+            assertThat(line.getInvoiceNumber()).isEqualTo(number);
+            assertThat(line.getCustomerName()).isEqualTo("Walk-in");
+            assertThat(line.getContactNumber()).isEqualTo("01700000000");
+        });
+    }
+
+    @Test
+    void updatingTheCustomerChangesEveryLine() {
+        String number = invoiceHistoryService.createInvoices(List.of(line("Napa", 2), line("Seclo", 3)))
+                .get(0).getInvoiceNumber();
+        InvoiceHistory update = line("Napa", 1);
+        update.setCustomerName("Rahim");
+
+        invoiceHistoryService.updateInvoiceByInvoiceNumber(number, update);
+
+        assertThat(invoiceHistoryService.getByInvoiceNumber(number))
+                .extracting(InvoiceHistory::getCustomerName).containsOnly("Rahim");
+        Invoice header = invoiceRepository.findByInvoiceNumber(number).orElseThrow();
+        assertThat(header.getQuantity()).isEqualTo(4);
+    }
+
+    @Test
+    void deletingAnInvoiceRemovesItsHeader() {
+        String number = invoiceHistoryService.createInvoices(List.of(line("Napa", 1)))
+                .get(0).getInvoiceNumber();
+
+        invoiceHistoryService.deleteByInvoiceNumber(number);
+
+        assertThat(invoiceRepository.findByInvoiceNumber(number)).isEmpty();
+        assertThatThrownBy(() -> invoiceHistoryService.getByInvoiceNumber(number))
+                .hasMessageContaining(number);
+    }
+
+    private static Inventory item(String name) {
+        Inventory inventory = new Inventory();
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(100);
+        inventory.setUnitPrice(BigDecimal.ONE);
+        inventory.setSellPrice(BigDecimal.TEN);
+        return inventory;
+    }
+
+    private static InvoiceHistory line(String name, int quantity) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setCustomerName("Walk-in");
+        line.setContactNumber("01700000000");
+        line.setItemName(name);
+        line.setCategory("Tablet");
+        line.setQuantity(quantity);
+        line.setUnitPrice(10);
+        line.setSubTotal(10.0 * quantity);
+        line.setAmount(10.0 * quantity);
+        line.setNetPayable(10.0 * quantity);
+        return line;
+    }
+}
@@ -0,0 +1,90 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRField;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Fills the invoice history report from a generated million-row source under a
+// small heap. Slow, so it only runs on request:
+//   mvn test -Dtest=InvoiceHistoryReportStressTest -Dreports.stress=true -DargLine=-Xmx256m
+@Slf4j
+@EnabledIfSystemProperty(named = "reports.stress", matches = "true")
+class InvoiceHistoryReportStressTest {
+
+    private static final int ROWS = Integer.getInteger("reports.stress.rows", 1_000_000);
+    private static final long MAX_HEAP_MB = Long.getLong("reports.stress.max-heap-mb", 256);
+
+    @TempDir
+    Path swapDir;
+
+    @Test
+    void fillsAMillionRowsWithBoundedHeap() throws Exception {
+        JasperReportService service = new JasperReportService();
+        ReflectionTestUtils.setField(service, "reportTemplateRegistry", new ReportTemplateRegistry());
+        ReflectionTestUtils.setField(service, "virtualizerMaxPages", 20);
+        ReflectionTestUtils.setField(service, "swapDir", swapDir);
+
+        // Filling in full would need far more than this, finishing at all is the check
+        long maxHeapMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        assertThat(maxHeapMb).as("max heap, run with -DargLine=-Xmx%dm", MAX_HEAP_MB)
+                .isLessThanOrEqualTo(MAX_HEAP_MB);
+
+        CountingOutputStream out = new CountingOutputStream();
+        long start = System.nanoTime();
+        service.writeInvoiceHistoryReport(new GeneratedRows(ROWS), out);
+
+        log.info("Filled {} rows in {} s, {} KB of PDF, max heap {} MB",
+                ROWS, (System.nanoTime() - start) / 1_000_000_000, out.count / 1024, maxHeapMb);
+        assertThat(out.count).isPositive();
+    }
+
+    private static class GeneratedRows implements JRDataSource {
+        private final int rows;
+        private int row;
+
+        GeneratedRows(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean next() {
+            return row++ < rows;
+        }
+
+        @Override
+        public Object getFieldValue(JRField field) {
+            return switch (field.getName()) {
+                case "invoice_number" -> String.format("INV-20260101-%04d", row / 3);
+                case "customer_name" -> "Customer " + (row % 500);
+                case "contact_number" -> "0170000" + (row % 10000);
+                case "item_name" -> "Item " + (row % 2000);
+                case "category" -> "Tablet";
+                case "quantity" -> row % 10 + 1;
+                default -> (double) (row % 1000);
+            };
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoiceNumberAllocatorTest {
+
+    private static final int THREADS = 64;
+    private static final int BLOCK_SIZE = 20;
+
+    // Stands in for the counter row: atomic, and slow like a database round trip
+    private final Map<LocalDate, Long> counters = new ConcurrentHashMap<>();
+    private final AtomicInteger reservations = new AtomicInteger();
+
+    private long reserve(LocalDate day, int blockSize) {
+        reservations.incrementAndGet();
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return counters.merge(day, (long) blockSize, Long::sum);
+    }
+
+    @Test
+    void staysUniqueAndMostlyIoFreeUnder64Threads() throws Exception {
+        Clock clock = Clock.fixed(Instant.parse("2026-10-18T10:00:00Z"), ZoneOffset.UTC);
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(this::reserve, clock, BLOCK_SIZE);
+
+        Set<String> numbers = ConcurrentHashMap.newKeySet();
+        int perThread = 1000;
+        runConcurrently(() -> {
+            for (int i = 0; i < perThread; i++) {
+                assertThat(numbers.add(allocator.next())).isTrue();
+            }
+        });
+
+        int total = THREADS * perThread;
+        assertThat(numbers).hasSize(total)
+                .allMatch(n -> n.matches("INV-20261018-\\d{4,}"));
+        // Racing refills keep their blocks for later, at most one spare per thread is left over
+        assertThat(reservations.get()).isBetween(total / BLOCK_SIZE, total / BLOCK_SIZE + THREADS);
+    }
+
+    @Test
+    void otherThreadsKeepGoingWhileOneRefills() throws Exception {
+        Clock clock = Clock.fixed(Instant.parse("2026-10-18T10:00:00Z"), ZoneOffset.UTC);
+        CountDownLatch firstReserving = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator((day, blockSize) -> {
+            if (calls.incrementAndGet() == 1) {
+                firstReserving.countDown();
+                try {
+                    releaseFirst.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return reserve(day, blockSize);
+        }, clock, 2);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> stuck = pool.submit(allocator::next);
+            assertThat(firstReserving.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // A slow round trip no longer holds every other checkout behind the lock
+            String other = pool.submit(allocator::next).get(5, TimeUnit.SECONDS);
+            releaseFirst.countDown();
+
+            assertThat(Set.of(other, stuck.get(5, TimeUnit.SECONDS), allocator.next(), allocator.next()))
+                    .containsExactlyInAnyOrder("INV-20261018-0001", "INV-20261018-0002",
+                            "INV-20261018-0003", "INV-20261018-0004");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void refusesToRunInsideATransaction() {
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(this::reserve, Clock.systemUTC(), BLOCK_SIZE);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThatThrownBy(allocator::next).isInstanceOf(IllegalStateException.class);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertThat(reservations).hasValue(0);
+    }
+
+    @Test
+    void startsANewSequenceEachDay() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-10-18T23:59:59Z"));
+        InvoiceNumberAllocator allocator = new InvoiceNumberAllocator(this::reserve, clock, BLOCK_SIZE);
+
+        assertThat(allocator.next()).isEqualTo("INV-20261018-0001");
+        assertThat(allocator.next()).isEqualTo("INV-20261018-0002");
+        clock.instant = Instant.parse("2026-10-19T00:00:01Z");
+        assertThat(allocator.next()).isEqualTo("INV-20261019-0001");
+    }
+
+    @Test
+    void readsTheIssueDayBackFromANumber() {
+        assertThat(InvoiceNumberAllocator.dateOf("INV-20261018-0042")).contains(LocalDate.of(2026, 10, 18));
+        assertThat(InvoiceNumberAllocator.dateOf("INV-1234")).isEmpty();
+        assertThat(InvoiceNumberAllocator.dateOf("INV-20261399-0001")).isEmpty();
+    }
+
+    private static void runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                task.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
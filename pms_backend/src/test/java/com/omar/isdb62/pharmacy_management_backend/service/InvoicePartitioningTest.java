@@ -0,0 +1,121 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.PostgresIntegrationTest;
+import com.omar.isdb62.pharmacy_management_backend.model.Invoice;
+import com.omar.isdb62.pharmacy_management_backend.model.InvoiceHistory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceHistoryRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoicePartitionRepository;
+import com.omar.isdb62.pharmacy_management_backend.repository.InvoiceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InvoicePartitioningTest extends PostgresIntegrationTest {
+
+    // Far enough back that nothing else writes there
+    private static final YearMonth OLD_MONTH = YearMonth.of(2001, 1);
+
+    @Autowired
+    private InvoicePartitionMaintainer partitionMaintainer;
+
+    @Autowired
+    private InvoicePartitionRepository partitionRepository;
+
+    @Autowired
+    private InvoiceHistoryRepository invoiceHistoryRepository;
+
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + InvoicePartitionRepository.partitionName(OLD_MONTH));
+        invoiceHistoryRepository.deleteAll();
+        invoiceRepository.deleteAll();
+        partitionMaintainer.maintain();
+    }
+
+    @Test
+    void keepsTheCurrentAndUpcomingMonthsAttached() {
+        YearMonth current = YearMonth.now();
+
+        assertThat(partitionMaintainer.attachedMonths())
+                .contains(current, current.plusMonths(1), current.plusMonths(2), current.plusMonths(3));
+    }
+
+    @Test
+    void dateQueriesOnlyScanTheirMonth() {
+        LocalDate today = LocalDate.now();
+        invoiceHistoryRepository.save(line(today));
+
+        assertThat(invoiceHistoryRepository.findByDate(today)).hasSize(1);
+        assertThat(plan("SELECT * FROM flutter_invoice_history WHERE date = ?", today))
+                .contains(InvoicePartitionRepository.partitionName(YearMonth.from(today)))
+                .doesNotContain(InvoicePartitionRepository.partitionName(YearMonth.from(today).plusMonths(1)));
+    }
+
+    @Test
+    void invoiceLookupsSkipMonthsBeforeTheInvoiceWasIssued() {
+        partitionRepository.createMonth(OLD_MONTH);
+        LocalDate today = LocalDate.now();
+        Invoice header = new Invoice();
+        header.setInvoiceNumber("INV-20010101-0001");
+        header.setDate(today);
+        header = invoiceRepository.save(header);
+        InvoiceHistory line = line(today);
+        line.setInvoice(header);
+        invoiceHistoryRepository.save(line);
+
+        assertThat(invoiceHistoryRepository.findByInvoiceAndDateGreaterThanEqualOrderById(header, today))
+                .singleElement()
+                .satisfies(found -> assertThat(found.getInvoiceNumber()).isEqualTo("INV-20010101-0001"));
+        assertThat(plan("SELECT * FROM flutter_invoice_history WHERE invoice_id = ? AND date >= ?", header.getId(), today))
+                .doesNotContain(InvoicePartitionRepository.partitionName(OLD_MONTH));
+    }
+
+    @Test
+    void detachedMonthsLeaveTheHistoryButKeepTheirRows() {
+        partitionRepository.createMonth(OLD_MONTH);
+        LocalDate day = OLD_MONTH.atDay(15);
+        invoiceHistoryRepository.save(line(day));
+
+        partitionMaintainer.detach(OLD_MONTH);
+
+        assertThat(invoiceHistoryRepository.findByDate(day)).isEmpty();
+        assertThat(partitionMaintainer.attachedMonths()).doesNotContain(OLD_MONTH);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM " + InvoicePartitionRepository.partitionName(OLD_MONTH), Integer.class))
+                .isEqualTo(1);
+    }
+
+    @Test
+    void refusesToDetachTheCurrentMonth() {
+        assertThatThrownBy(() -> partitionMaintainer.detach(YearMonth.now()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String plan(String sql, Object... args) {
+        List<String> rows = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args);
+        return String.join("\n", rows);
+    }
+
+    private static InvoiceHistory line(LocalDate date) {
+        InvoiceHistory line = new InvoiceHistory();
+        line.setItemName("Napa");
+        line.setCategory("Tablet");
+        line.setQuantity(1);
+        line.setDate(date);
+        return line;
+    }
+}
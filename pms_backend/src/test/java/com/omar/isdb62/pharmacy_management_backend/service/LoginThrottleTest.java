@@ -0,0 +1,63 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.exception.LoginThrottledException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class LoginThrottleTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private long now;
+
+    // 10 attempts per minute per IP, 3 per minute per account
+    private final LoginThrottle throttle = new LoginThrottle(meterRegistry, 10, Duration.ofMinutes(1),
+            3, Duration.ofMinutes(1), 1000, Duration.ofMinutes(15), () -> now);
+
+    @Test
+    void throttlesAnAccountAfterItsBurst() {
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("10.0.0." + i, "Clerk@Pharmacy.test");
+        }
+
+        LoginThrottledException e = catchThrowableOfType(LoginThrottledException.class,
+                () -> throttle.acquire("10.0.0.9", "clerk@pharmacy.test"));
+
+        assertThat(e.getRetryAfter()).isEqualTo(Duration.ofSeconds(20));
+        assertThat(meterRegistry.counter("auth.login.throttled", "bucket", "account").count()).isEqualTo(1);
+        throttle.acquire("10.0.0.9", "owner@pharmacy.test");
+    }
+
+    @Test
+    void throttlesAnAddressTryingManyAccounts() {
+        for (int i = 0; i < 10; i++) {
+            throttle.acquire("10.0.0.1", "user" + i + "@pharmacy.test");
+        }
+
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.1", "other@pharmacy.test"))
+                .isInstanceOf(LoginThrottledException.class);
+        assertThat(meterRegistry.counter("auth.login.throttled", "bucket", "ip").count()).isEqualTo(1);
+        throttle.acquire("10.0.0.2", "other@pharmacy.test");
+    }
+
+    @Test
+    void refillsOverTime() {
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("10.0.0.1", "clerk@pharmacy.test");
+        }
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.1", "clerk@pharmacy.test"))
+                .isInstanceOf(LoginThrottledException.class);
+
+        now += TimeUnit.SECONDS.toNanos(20);
+
+        throttle.acquire("10.0.0.1", "clerk@pharmacy.test");
+        assertThatThrownBy(() -> throttle.acquire("10.0.0.1", "clerk@pharmacy.test"))
+                .isInstanceOf(LoginThrottledException.class);
+    }
+}
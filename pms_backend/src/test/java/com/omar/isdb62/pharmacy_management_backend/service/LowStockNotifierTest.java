@@ -0,0 +1,110 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.LowStockChange;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LowStockNotifierTest {
+
+    private static final int QUEUE = 4;
+
+    private final LowStockNotifier notifier = new LowStockNotifier(Duration.ofMinutes(1), QUEUE);
+    private final CountDownLatch connectionBack = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        connectionBack.countDown();
+        notifier.shutdown();
+    }
+
+    @Test
+    void aStalledClientDoesNotHoldUpTheOthers() throws Exception {
+        Stalled stalled = new Stalled();
+        Counting counting = new Counting(3);
+        notifier.register(stalled, List::of);
+        notifier.register(counting, List::of);
+        assertThat(stalled.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        notifier.publish(change());
+        notifier.publish(change());
+
+        // Snapshot and both changes, while the first client is still stuck
+        assertThat(counting.done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void dropsAClientThatFallsTooFarBehind() throws Exception {
+        Stalled stalled = new Stalled();
+        int changes = QUEUE + 2;
+        Counting counting = new Counting(1 + changes);
+        notifier.register(stalled, List::of);
+        notifier.register(counting, List::of);
+        assertThat(stalled.entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // One at a time, so only the stalled client falls behind
+        for (int i = 1; i <= changes; i++) {
+            notifier.publish(change());
+            awaitSent(counting, 1 + i);
+        }
+
+        assertThat(notifier.subscriberCount()).isEqualTo(1);
+        assertThat(counting.sent.get()).isEqualTo(1 + changes);
+    }
+
+    private static void awaitSent(Counting emitter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emitter.sent.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(emitter.sent.get()).isEqualTo(count);
+    }
+
+    private static LowStockChange change() {
+        Inventory item = new Inventory();
+        item.setItemName("Napa");
+        item.setQuantity(3);
+        return new LowStockChange(item, 10, true, false);
+    }
+
+    // A till whose connection stopped taking data
+    private class Stalled extends SseEmitter {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            entered.countDown();
+            try {
+                connectionBack.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Counting extends SseEmitter {
+
+        final AtomicInteger sent = new AtomicInteger();
+        final CountDownLatch done;
+
+        Counting(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.incrementAndGet();
+            done.countDown();
+        }
+    }
+}
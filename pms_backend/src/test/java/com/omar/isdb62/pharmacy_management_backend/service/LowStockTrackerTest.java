@@ -0,0 +1,105 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import com.omar.isdb62.pharmacy_management_backend.dto.LowStockChange;
+import com.omar.isdb62.pharmacy_management_backend.event.InventoryChangedEvent;
+import com.omar.isdb62.pharmacy_management_backend.model.Inventory;
+import com.omar.isdb62.pharmacy_management_backend.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class LowStockTrackerTest {
+
+    private LowStockNotifier notifier;
+    private LowStockTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        InventoryRepository repository = mock(InventoryRepository.class);
+        when(repository.findAll()).thenReturn(List.of(
+                item(1L, "Napa", 12, null),
+                item(2L, "Seclo", 3, null),
+                // Slow mover, only low when nearly gone
+                item(3L, "Fexo", 3, 2)));
+        notifier = mock(LowStockNotifier.class);
+        tracker = new LowStockTracker(repository, notifier, 10);
+        tracker.load();
+    }
+
+    @Test
+    void usesEachItemsReorderLevel() {
+        assertThat(names(tracker.getLowStock())).containsExactly("Seclo");
+        assertThat(names(tracker.getSufficientStock())).containsExactly("Fexo", "Napa");
+    }
+
+    @Test
+    void saleBelowTheReorderLevelIsPushedAsACrossing() {
+        tracker.onInventoryChanged(InventoryChangedEvent.stockAdjusted("Napa", "Tablet", 10, 1));
+        verifyNoInteractions(notifier);
+
+        tracker.onInventoryChanged(InventoryChangedEvent.stockAdjusted("Napa", "Tablet", 9, 2));
+
+        LowStockChange change = published();
+        assertThat(change.item().getQuantity()).isEqualTo(9);
+        assertThat(change.low()).isTrue();
+        assertThat(change.crossed()).isTrue();
+        assertThat(names(tracker.getLowStock())).containsExactly("Napa", "Seclo");
+    }
+
+    @Test
+    void receiveThatRestocksALowItemTakesItOffTheList() {
+        tracker.onInventoryChanged(InventoryChangedEvent.upserted(item(2L, "Seclo", 50, null)));
+
+        LowStockChange change = published();
+        assertThat(change.low()).isFalse();
+        assertThat(change.crossed()).isTrue();
+        assertThat(tracker.getLowStock()).isEmpty();
+    }
+
+    @Test
+    void raisingTheReorderLevelCanMakeAnItemLow() {
+        tracker.onInventoryChanged(InventoryChangedEvent.upserted(item(1L, "Napa", 12, 20)));
+
+        assertThat(published().crossed()).isTrue();
+        assertThat(names(tracker.getLowStock())).containsExactly("Napa", "Seclo");
+    }
+
+    // The sale committed first but its listener runs after the receive's
+    @Test
+    void aSaleAppliedAfterALaterReceiveIsSkipped() {
+        Inventory received = item(2L, "Seclo", 53, null);
+        received.setVersion(2);
+        tracker.onInventoryChanged(InventoryChangedEvent.upserted(received));
+        clearInvocations(notifier);
+
+        tracker.onInventoryChanged(InventoryChangedEvent.stockAdjusted("Seclo", "Tablet", 1, 1));
+
+        verifyNoInteractions(notifier);
+        assertThat(tracker.getLowStock()).isEmpty();
+    }
+
+    private LowStockChange published() {
+        ArgumentCaptor<LowStockChange> captor = ArgumentCaptor.forClass(LowStockChange.class);
+        verify(notifier).publish(captor.capture());
+        return captor.getValue();
+    }
+
+    private static List<String> names(List<Inventory> items) {
+        return items.stream().map(Inventory::getItemName).toList();
+    }
+
+    private static Inventory item(Long id, String name, int quantity, Integer reorderLevel) {
+        Inventory inventory = new Inventory();
+        inventory.setId(id);
+        inventory.setItemName(name);
+        inventory.setCategory("Tablet");
+        inventory.setQuantity(quantity);
+        inventory.setReorderLevel(reorderLevel);
+        return inventory;
+    }
+}
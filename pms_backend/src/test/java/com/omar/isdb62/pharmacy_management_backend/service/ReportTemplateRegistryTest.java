@@ -0,0 +1,35 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperReport;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportTemplateRegistryTest {
+
+    private final ReportTemplateRegistry registry = new ReportTemplateRegistry();
+
+    @Test
+    void compilesEachTemplateOnce() throws JRException {
+        JasperReport first = registry.get(ReportTemplateRegistry.INVOICE_HISTORY);
+
+        assertThat(registry.get(ReportTemplateRegistry.INVOICE_HISTORY)).isSameAs(first);
+    }
+
+    @Test
+    void registeringAgainReplacesTheCompiledTemplate() throws JRException {
+        JasperReport first = registry.get(ReportTemplateRegistry.INVOICE_HISTORY);
+        registry.register(ReportTemplateRegistry.INVOICE_HISTORY, "report/invoice-history.jrxml");
+
+        assertThat(registry.get(ReportTemplateRegistry.INVOICE_HISTORY)).isNotSameAs(first);
+    }
+
+    @Test
+    void rejectsUnknownTemplates() {
+        assertThatThrownBy(() -> registry.get("missing")).isInstanceOf(JRException.class);
+        registry.register("broken", "report/does-not-exist.jrxml");
+        assertThatThrownBy(() -> registry.get("broken")).isInstanceOf(JRException.class);
+    }
+}
@@ -0,0 +1,29 @@
+package com.omar.isdb62.pharmacy_management_backend.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// Makes the next checkout lose a deadlock once, after its lines have been
+// saved: the sales rollup upsert comes last in InvoiceHistoryService.checkout.
+// A sequence counts the calls because it is not rolled back with the attempt.
+final class SimulatedConflict {
+
+    private SimulatedConflict() {
+    }
+
+    static void once(JdbcTemplate jdbcTemplate) {
+        remove(jdbcTemplate);
+        jdbcTemplate.execute("CREATE SEQUENCE test_conflict_once");
+        jdbcTemplate.execute("CREATE FUNCTION test_conflict_once() RETURNS trigger AS $$ BEGIN " +
+                "IF nextval('test_conflict_once') = 1 THEN " +
+                "RAISE EXCEPTION 'simulated deadlock' USING ERRCODE = '40P01'; " +
+                "END IF; RETURN NEW; END $$ LANGUAGE plpgsql");
+        jdbcTemplate.execute("CREATE TRIGGER test_conflict_once BEFORE INSERT ON sales_daily_summary " +
+                "FOR EACH ROW EXECUTE FUNCTION test_conflict_once()");
+    }
+
+    static void remove(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS test_conflict_once ON sales_daily_summary");
+        jdbcTemplate.execute("DROP FUNCTION IF EXISTS test_conflict_once()");
+        jdbcTemplate.execute("DROP SEQUENCE IF EXISTS test_conflict_once");
+    }
+}
@@ -0,0 +1,27 @@
+import 'inventory.dart';
+
+// Response of /api/inventory/changed-since. Apply upserts and deletes by id,
+// then send version next time.
+class InventoryChanges {
+  final int version;
+  final List<Inventory> upserts;
+  final List<int> deletedIds;
+
+  InventoryChanges({
+    required this.version,
+    required this.upserts,
+    required this.deletedIds,
+  });
+
+  factory InventoryChanges.fromJson(Map<String, dynamic> json) {
+    return InventoryChanges(
+      version: json['version'] as int,
+      upserts: (json['upserts'] as List<dynamic>)
+          .map((item) => Inventory.fromJson(item))
+          .toList(),
+      deletedIds: (json['deletes'] as List<dynamic>)
+          .map((tombstone) => tombstone['id'] as int)
+          .toList(),
+    );
+  }
+}
@@ -0,0 +1,63 @@
+import 'inventory.dart';
+
+// Row of the inventory list screen, as returned by /api/inventory/page
+class InventoryListItem {
+  final int id;
+  final String itemName;
+  final String? companyName;
+  final String category;
+  final String? generic;
+  final int quantity;
+  final double unitPrice;
+
+  InventoryListItem({
+    required this.id,
+    required this.itemName,
+    this.companyName,
+    required this.category,
+    this.generic,
+    required this.quantity,
+    required this.unitPrice,
+  });
+
+  factory InventoryListItem.fromJson(Map<String, dynamic> json) {
+    return InventoryListItem(
+      id: json['id'] as int,
+      itemName: json['itemName'] as String,
+      companyName: json['companyName'] as String?,
+      category: json['category'] as String,
+      generic: json['generic'] as String?,
+      quantity: json['quantity'] as int,
+      unitPrice: (json['unitPrice'] as num).toDouble(),
+    );
+  }
+
+  // Search still returns full rows
+  factory InventoryListItem.fromInventory(Inventory inventory) {
+    return InventoryListItem(
+      id: inventory.id,
+      itemName: inventory.itemName,
+      companyName: inventory.companyName,
+      category: inventory.category,
+      generic: inventory.generic,
+      quantity: inventory.quantity,
+      unitPrice: inventory.unitPrice,
+    );
+  }
+}
+
+class InventoryPage {
+  final List<InventoryListItem> items;
+  final String? nextCursor;
+
+  InventoryPage({required this.items, this.nextCursor});
+
+  factory InventoryPage.fromJson(Map<String, dynamic> json) {
+    return InventoryPage(
+      items: (json['items'] as List<dynamic>)
+          .map((item) => InventoryListItem.fromJson(item))
+          .toList(),
+      nextCursor: json['nextCursor'] as String?,
+    );
+  }
+}
@@ -0,0 +1,48 @@
+// Invoice header with its totals, as returned by /api/invoice/headers.
+// The lines are fetched separately when an invoice is opened.
+class Invoice {
+  final int id;
+  final String invoiceNumber;
+  final String? customerName;
+  final String? contactNumber;
+  final double discount;
+  final String date;
+  final int lineCount;
+  final int quantity;
+  final double subTotal;
+  final double amount;
+  final double discountAmount;
+  final double netPayable;
+
+  Invoice({
+    required this.id,
+    required this.invoiceNumber,
+    this.customerName,
+    this.contactNumber,
+    required this.discount,
+    required this.date,
+    required this.lineCount,
+    required this.quantity,
+    required this.subTotal,
+    required this.amount,
+    required this.discountAmount,
+    required this.netPayable,
+  });
+
+  factory Invoice.fromJson(Map<String, dynamic> json) {
+    return Invoice(
+      id: json['id'] as int,
+      invoiceNumber: json['invoiceNumber'] as String,
+      customerName: json['customerName'] as String?,
+      contactNumber: json['contactNumber'] as String?,
+      discount: (json['discount'] as num).toDouble(),
+      date: json['date'] as String,
+      lineCount: json['lineCount'] as int,
+      quantity: json['quantity'] as int,
+      subTotal: (json['subTotal'] as num).toDouble(),
+      amount: (json['amount'] as num).toDouble(),
+      discountAmount: (json['discountAmount'] as num).toDouble(),
+      netPayable: (json['netPayable'] as num).toDouble(),
+    );
+  }
+}
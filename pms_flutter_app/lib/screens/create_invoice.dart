@@ -1,3 +1,5 @@
+import 'dart:convert';
+
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
 import 'package:flutter_typeahead/flutter_typeahead.dart';
@@ -22,6 +24,11 @@ class _CreateInvoiceScreenState extends State<CreateInvoiceScreen> {
 
   List<Map<String, dynamic>> _invoiceItems = [];
 
+  // Idempotency-Key of the last cart sent. Submitting the same cart again
+  // (after a timeout) reuses it, so the server cannot sell it twice.
+  String? _submittedPayload;
+  String? _idempotencyKey;
+
   @override
   void initState() {
     super.initState();
@@ -81,8 +88,26 @@ class _CreateInvoiceScreenState extends State<CreateInvoiceScreen> {
         )
         .toList();
 
-    final success = await _invoiceService.submitInvoice(payload);
+    final encoded = jsonEncode(payload);
+    if (encoded != _submittedPayload) {
+      _submittedPayload = encoded;
+      _idempotencyKey = InvoiceService.newIdempotencyKey();
+    }
+
+    bool success;
+    try {
+      success = await _invoiceService.submitInvoice(
+        payload,
+        idempotencyKey: _idempotencyKey,
+      );
+    } catch (e) {
+      debugPrint('Error submitting invoice: $e');
+      success = false;
+    }
+    if (!mounted) return;
     if (success) {
+      _submittedPayload = null;
+      _idempotencyKey = null;
       ScaffoldMessenger.of(context).showSnackBar(
         const SnackBar(
           content: Text('Invoice created'),
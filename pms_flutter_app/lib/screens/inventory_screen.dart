@@ -1,5 +1,5 @@
 import 'package:flutter/material.dart';
-import '../model/inventory.dart';
+import '../model/inventory_list_item.dart';
 import '../services/inventory_service.dart';
 import 'add_medicine_screen.dart';
 
@@ -11,28 +11,50 @@ class InventoryScreen extends StatefulWidget {
 }
 
 class _InventoryScreenState extends State<InventoryScreen> {
-  List<Inventory> _medicines = [];
+  List<InventoryListItem> _medicines = [];
   bool _isLoading = true;
   String _errorMessage = '';
   final TextEditingController _searchController = TextEditingController();
+  final ScrollController _scrollController = ScrollController();
   final InventoryService _inventoryService = InventoryService();
 
+  // Paging state, null cursor after the first page means there is no more
+  String? _nextCursor;
+  bool _isLoadingMore = false;
+  bool _isSearching = false;
+
   @override
   void initState() {
     super.initState();
+    _scrollController.addListener(_onScroll);
     _fetchMedicines();
   }
 
+  @override
+  void dispose() {
+    _scrollController.dispose();
+    _searchController.dispose();
+    super.dispose();
+  }
+
+  void _onScroll() {
+    if (_scrollController.position.extentAfter < 500) {
+      _loadMore();
+    }
+  }
+
   Future<void> _fetchMedicines() async {
     setState(() {
       _isLoading = true;
+      _isSearching = false;
       _errorMessage = '';
     });
 
     try {
-      final data = await _inventoryService.fetchAllMedicines();
+      final page = await _inventoryService.fetchMedicinePage();
       setState(() {
-        _medicines = data;
+        _medicines = page.items;
+        _nextCursor = page.nextCursor;
         _isLoading = false;
       });
     } catch (e) {
@@ -43,6 +65,24 @@ class _InventoryScreenState extends State<InventoryScreen> {
     }
   }
 
+  Future<void> _loadMore() async {
+    if (_isSearching || _isLoadingMore || _nextCursor == null) return;
+    setState(() => _isLoadingMore = true);
+
+    try {
+      final page = await _inventoryService.fetchMedicinePage(
+        cursor: _nextCursor,
+      );
+      setState(() {
+        _medicines.addAll(page.items);
+        _nextCursor = page.nextCursor;
+        _isLoadingMore = false;
+      });
+    } catch (e) {
+      setState(() => _isLoadingMore = false);
+    }
+  }
+
   Future<void> _searchMedicines(String query) async {
     if (query.isEmpty) {
       _fetchMedicines();
@@ -51,13 +91,14 @@ class _InventoryScreenState extends State<InventoryScreen> {
 
     setState(() {
       _isLoading = true;
+      _isSearching = true;
       _errorMessage = '';
     });
 
     try {
       final data = await _inventoryService.searchMedicines(query);
       setState(() {
-        _medicines = data;
+        _medicines = data.map(InventoryListItem.fromInventory).toList();
         _isLoading = false;
       });
     } catch (e) {
@@ -116,9 +157,16 @@ class _InventoryScreenState extends State<InventoryScreen> {
           : _medicines.isEmpty
           ? const Center(child: Text('No medicines found.'))
           : ListView.builder(
+              controller: _scrollController,
               padding: const EdgeInsets.all(8.0),
-              itemCount: _medicines.length,
+              itemCount: _medicines.length + (_isLoadingMore ? 1 : 0),
               itemBuilder: (context, index) {
+                if (index == _medicines.length) {
+                  return const Padding(
+                    padding: EdgeInsets.all(16.0),
+                    child: Center(child: CircularProgressIndicator()),
+                  );
+                }
                 final medicine = _medicines[index];
                 return Card(
                   color: Colors.blueGrey,
@@ -3,6 +3,7 @@ import 'dart:convert';
 import 'package:flutter/material.dart';
 import 'package:http/http.dart' as http;
 
+import '../model/invoice.dart';
 import '../model/invoice_history.dart';
 
 class InvoiceHistoryScreen extends StatefulWidget {
@@ -12,8 +13,13 @@ class InvoiceHistoryScreen extends StatefulWidget {
   State<InvoiceHistoryScreen> createState() => _InvoiceHistoryScreenState();
 }
 
+// Lists invoice headers only, an invoice's lines are loaded when it is opened
 class _InvoiceHistoryScreenState extends State<InvoiceHistoryScreen> {
-  List<InvoiceHistory> _invoices = [];
+  static const String baseUrl = 'http://192.168.0.186:8080/api/invoice';
+  //static const String baseUrl = 'http://192.168.0.197:8080/api/invoice';
+
+  List<Invoice> _invoices = [];
+  final Map<String, Future<List<InvoiceHistory>>> _lines = {};
   bool _isLoading = true;
 
   @override
@@ -24,16 +30,11 @@ class _InvoiceHistoryScreenState extends State<InvoiceHistoryScreen> {
 
   Future<void> _fetchInvoices() async {
     try {
-      final response = await http.get(
-        Uri.parse('http://192.168.0.186:8080/api/invoice/all'),
-         //Uri.parse('http://192.168.0.197:8080/api/invoice/all'),
-      );
+      final response = await http.get(Uri.parse('$baseUrl/headers'));
       if (response.statusCode == 200) {
         final List<dynamic> data = jsonDecode(response.body);
         setState(() {
-          _invoices = data
-              .map((json) => InvoiceHistory.fromJson(json))
-              .toList();
+          _invoices = data.map((json) => Invoice.fromJson(json)).toList();
           _isLoading = false;
         });
       } else {
@@ -46,6 +47,17 @@ class _InvoiceHistoryScreenState extends State<InvoiceHistoryScreen> {
     }
   }
 
+  Future<List<InvoiceHistory>> _fetchLines(String invoiceNumber) async {
+    final response = await http.get(
+      Uri.parse('$baseUrl/${Uri.encodeComponent(invoiceNumber)}'),
+    );
+    if (response.statusCode != 200) {
+      throw Exception('Failed to load invoice $invoiceNumber');
+    }
+    final List<dynamic> data = jsonDecode(response.body);
+    return data.map((json) => InvoiceHistory.fromJson(json)).toList();
+  }
+
   @override
   Widget build(BuildContext context) {
     return Scaffold(
@@ -68,27 +80,72 @@ class _InvoiceHistoryScreenState extends State<InvoiceHistoryScreen> {
                     vertical: 6,
                   ),
                   elevation: 4,
-                  child: ListTile(
+                  child: ExpansionTile(
                     title: Text(
-                      'Invoice: ${invoice.invoiceNumber ?? 'N/A'}',
+                      'Invoice: ${invoice.invoiceNumber}',
                       style: const TextStyle(fontWeight: FontWeight.bold),
                     ),
                     subtitle: Column(
                       crossAxisAlignment: CrossAxisAlignment.start,
                       children: [
-                        Text('Customer: ${invoice.customerName}'),
+                        Text('Date: ${invoice.date}'),
+                        Text('Customer: ${invoice.customerName ?? ''}'),
                         Text(
-                          'Medicine: ${invoice.itemName} (${invoice.category})',
+                          'Items: ${invoice.lineCount}, Qty: ${invoice.quantity} Pisces',
                         ),
-                        Text('Qty: ${invoice.quantity} Pisces'),
-                        Text('Unit Price: ${invoice.unitPrice}'),
-                        Text('Amount: ${invoice.amount}'),
                         Text('Discount Amount: ${invoice.discountAmount} TAKA'),
                         Text(
                           'Net Payable: ${invoice.netPayable.toStringAsFixed(2)}',
                         ),
                       ],
                     ),
+                    onExpansionChanged: (expanded) {
+                      if (expanded) {
+                        setState(() {
+                          _lines.putIfAbsent(
+                            invoice.invoiceNumber,
+                            () => _fetchLines(invoice.invoiceNumber),
+                          );
+                        });
+                      }
+                    },
+                    children: [
+                      FutureBuilder<List<InvoiceHistory>>(
+                        future: _lines[invoice.invoiceNumber],
+                        builder: (context, snapshot) {
+                          if (snapshot.hasError) {
+                            return const Padding(
+                              padding: EdgeInsets.all(12),
+                              child: Text('Could not load invoice lines.'),
+                            );
+                          }
+                          if (!snapshot.hasData) {
+                            return const Padding(
+                              padding: EdgeInsets.all(12),
+                              child: CircularProgressIndicator(),
+                            );
+                          }
+                          return Column(
+                            children: snapshot.data!
+                                .map(
+                                  (line) => ListTile(
+                                    dense: true,
+                                    title: Text(
+                                      '${line.itemName} (${line.category})',
+                                    ),
+                                    subtitle: Text(
+                                      'Qty: ${line.quantity} x ${line.unitPrice}',
+                                    ),
+                                    trailing: Text(
+                                      line.netPayable.toStringAsFixed(2),
+                                    ),
+                                  ),
+                                )
+                                .toList(),
+                          );
+                        },
+                      ),
+                    ],
                   ),
                 );
               },
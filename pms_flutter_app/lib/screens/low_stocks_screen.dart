@@ -1,3 +1,4 @@
+import 'dart:async';
 import 'dart:convert';
 import 'package:flutter/material.dart';
 import 'package:http/http.dart' as http;
@@ -18,10 +19,79 @@ class _LowStocksScreenState extends State<LowStocksScreen> {
    final String _baseUrl = 'http://192.168.0.186:8080/api/inventory/low-stock';
   //final String _baseUrl = 'http://192.168.0.197:8080/api/inventory/low-stock';
 
+  // Server push: a snapshot first, then every change to the low-stock list
+  http.Client? _streamClient;
+  StreamSubscription<String>? _streamSubscription;
+
   @override
   void initState() {
     super.initState();
     _fetchLowStockItems();
+    _listenForChanges();
+  }
+
+  @override
+  void dispose() {
+    _streamSubscription?.cancel();
+    _streamClient?.close();
+    super.dispose();
+  }
+
+  Future<void> _listenForChanges() async {
+    _streamClient = http.Client();
+    try {
+      final request = http.Request('GET', Uri.parse('$_baseUrl/stream'))
+        ..headers['Accept'] = 'text/event-stream';
+      final response = await _streamClient!.send(request);
+
+      String? event;
+      final data = StringBuffer();
+      _streamSubscription = response.stream
+          .transform(utf8.decoder)
+          .transform(const LineSplitter())
+          .listen((line) {
+        if (line.startsWith('event:')) {
+          event = line.substring(6).trim();
+        } else if (line.startsWith('data:')) {
+          data.write(line.substring(5));
+        } else if (line.isEmpty && data.isNotEmpty) {
+          _onEvent(event, jsonDecode(data.toString()));
+          event = null;
+          data.clear();
+        }
+      }, onDone: _reconnect, onError: (_) => _reconnect());
+    } catch (e) {
+      _reconnect();
+    }
+  }
+
+  void _reconnect() {
+    _streamClient?.close();
+    if (mounted) {
+      Future.delayed(const Duration(seconds: 5), () {
+        if (mounted) _listenForChanges();
+      });
+    }
+  }
+
+  void _onEvent(String? event, dynamic payload) {
+    if (!mounted) return;
+    setState(() {
+      if (event == 'snapshot') {
+        _lowStockMedicines = (payload as List<dynamic>)
+            .map((json) => Inventory.fromJson(json))
+            .toList();
+      } else if (event == 'low-stock') {
+        final item = Inventory.fromJson(payload['item']);
+        _lowStockMedicines.removeWhere((m) => m.id == item.id);
+        if (payload['low'] == true) {
+          _lowStockMedicines.add(item);
+          _lowStockMedicines.sort((a, b) => a.itemName.compareTo(b.itemName));
+        }
+      }
+      _isLoading = false;
+      _errorMessage = '';
+    });
   }
 
   Future<void> _fetchLowStockItems() async {
@@ -1,21 +1,59 @@
 import 'dart:convert';
 import 'package:http/http.dart' as http;
 import '../model/inventory.dart';
+import '../model/inventory_changes.dart';
+import '../model/inventory_list_item.dart';
 
 class InventoryService {
    static const String _baseUrl = "http://192.168.0.186:8080/api/inventory";
   //static const String _baseUrl = "http://192.168.0.197:8080/api/inventory";
 
+  // Last catalog and its ETag, an unchanged catalog comes back as 304
+  static String? _catalogEtag;
+  static List<Inventory> _catalog = [];
+
   Future<List<Inventory>> fetchAllMedicines() async {
-    final response = await http.get(Uri.parse("$_baseUrl/all"));
-    if (response.statusCode == 200) {
+    final response = await http.get(
+      Uri.parse("$_baseUrl/all"),
+      headers: {if (_catalogEtag != null) 'If-None-Match': _catalogEtag!},
+    );
+    if (response.statusCode == 304) {
+      return List.of(_catalog);
+    } else if (response.statusCode == 200) {
       List<dynamic> jsonList = jsonDecode(response.body);
-      return jsonList.map((json) => Inventory.fromJson(json)).toList();
+      _catalog = jsonList.map((json) => Inventory.fromJson(json)).toList();
+      _catalogEtag = response.headers['etag'];
+      return List.of(_catalog);
     } else {
       throw Exception('Failed to fetch medicines');
     }
   }
 
+  // One page of the list, pass the previous page's nextCursor to continue
+  Future<InventoryPage> fetchMedicinePage({String? cursor, int size = 50}) async {
+    final query = {'size': '$size', if (cursor != null) 'cursor': cursor};
+    final response = await http.get(
+      Uri.parse("$_baseUrl/page").replace(queryParameters: query),
+    );
+    if (response.statusCode == 200) {
+      return InventoryPage.fromJson(jsonDecode(response.body));
+    } else {
+      throw Exception('Failed to fetch medicines');
+    }
+  }
+
+  // Only what changed since the version returned by the previous call (0 first)
+  Future<InventoryChanges> fetchChangesSince(int version) async {
+    final response = await http.get(
+      Uri.parse("$_baseUrl/changed-since?version=$version"),
+    );
+    if (response.statusCode == 200) {
+      return InventoryChanges.fromJson(jsonDecode(response.body));
+    } else {
+      throw Exception('Failed to fetch inventory changes');
+    }
+  }
+
   Future<List<Inventory>> searchMedicines(String name) async {
     final response = await http.get(Uri.parse("$_baseUrl/search?name=$name"));
     if (response.statusCode == 200) {
@@ -1,4 +1,6 @@
+import 'dart:async';
 import 'dart:convert';
+import 'dart:math';
 import 'package:http/http.dart' as http;
 import '../model/inventory.dart';
 
@@ -18,13 +20,46 @@ class InvoiceService {
     }
   }
 
-  Future<bool> submitInvoice(List<Map<String, dynamic>> invoiceItems) async {
+  static const Duration submitTimeout = Duration(seconds: 15);
+  static const int submitAttempts = 3;
+
+  // Random key for one checkout, sent again with every retry of it
+  static String newIdempotencyKey() {
+    final random = Random.secure();
+    return List.generate(
+      16,
+      (_) => random.nextInt(256).toRadixString(16).padLeft(2, '0'),
+    ).join();
+  }
+
+  // Requests that time out or lose the connection are sent again with the
+  // same Idempotency-Key, the server returns the first invoice instead of
+  // selling twice
+  Future<bool> submitInvoice(
+    List<Map<String, dynamic>> invoiceItems, {
+    String? idempotencyKey,
+  }) async {
     final url = Uri.parse('$baseUrl/invoice/create');
-    final response = await http.post(
-      url,
-      headers: {'Content-Type': 'application/json'},
-      body: jsonEncode(invoiceItems),
-    );
-    return response.statusCode == 200;
+    final key = idempotencyKey ?? newIdempotencyKey();
+    for (var attempt = 1; ; attempt++) {
+      try {
+        final response = await http
+            .post(
+              url,
+              headers: {
+                'Content-Type': 'application/json',
+                'Idempotency-Key': key,
+              },
+              body: jsonEncode(invoiceItems),
+            )
+            .timeout(submitTimeout);
+        return response.statusCode == 200;
+      } on TimeoutException {
+        if (attempt == submitAttempts) rethrow;
+      } on http.ClientException {
+        if (attempt == submitAttempts) rethrow;
+      }
+      await Future.delayed(Duration(seconds: attempt));
+    }
   }
 }